@@ -0,0 +1,122 @@
+package ai;
+
+import benchmark.Positions;
+import game.BitBoard;
+import game.Board;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the AI engines on the fixed positions
+ *
+ * The AI wrappers share one TranspositionTable between calls, so after
+ * warmup they mostly measure table hits
+ * The cold benchmarks search without a table and also report how many
+ * nodes they visit per second
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AIBenchmark {
+
+    @Param({Positions.OPENING, Positions.MIDGAME, Positions.ENDGAME})
+    public String position;
+
+    private Board board;
+    private BitBoard bitBoard;
+
+    /**
+     * Counts the nodes searched by the cold benchmarks
+     * JMH divides the counter by the time spent, which gives nodes per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+
+        public long nodes;
+
+        /**
+         * Resets the counter before every iteration
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.nodes = 0;
+        }
+    }
+
+    /**
+     * Creates the Boards before every trial
+     */
+    @Setup
+    public void setup() {
+        this.board = Positions.get(this.position);
+        this.bitBoard = new BitBoard(this.board);
+    }
+
+    /**
+     * Measures the MiniMax wrapper of the AI
+     *
+     * @return
+     * Returns the slot so it is not optimized away
+     */
+    @Benchmark
+    public int miniMax() {
+        return AI.getMiniMaxMove(this.board, this.board.getTurn());
+    }
+
+    /**
+     * Measures the AlphaBeta wrapper of the AI
+     *
+     * @return
+     * Returns the slot so it is not optimized away
+     */
+    @Benchmark
+    public int alphaBeta() {
+        return AI.getAlphaBetaMove(this.board, this.board.getTurn());
+    }
+
+    /**
+     * Measures the random move of the AI
+     *
+     * @return
+     * Returns the slot so it is not optimized away
+     */
+    @Benchmark
+    public int random() {
+        return AI.getRandomMove(this.board);
+    }
+
+    /**
+     * Searches the whole game tree with AlphaBeta and no table
+     *
+     * @param nodes
+     * The counter the visited nodes are added to
+     *
+     * @return
+     * Returns the score so it is not optimized away
+     */
+    @Benchmark
+    public int alphaBetaCold(Nodes nodes) {
+        final SearchContext search = new SearchContext(null, false, SearchContext.NO_DEADLINE, 9);
+        final int score = AlphaBeta.alphabeta(this.bitBoard, this.bitBoard.getTurn(), Integer.MIN_VALUE,
+                                              Integer.MAX_VALUE, Integer.MAX_VALUE, 0, search);
+        nodes.nodes += search.getStats().getNodes();
+        return score;
+    }
+}
@@ -0,0 +1,703 @@
+package ai;
+
+import game.BitBoard;
+import game.Board;
+import game.Symmetry;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Static class that checks the engines against a plain reference search
+ * Meant to be run before and after any change to the Board or the search
+ * hot path, since a faster search that plays a worse move is easy to miss
+ *
+ * Every suite walks a set of positions and asks every engine for a move,
+ * which passes if it keeps the value a plain depth limited minimax gives
+ * the position. The 3 by 3 suite walks all 5,478 reachable positions and
+ * searches to the end of the game, larger boards walk the first few plies
+ * at a bounded depth
+ *
+ * Perft counts of the move generator and the nodes every deterministic
+ * engine searched for every position are compared with a baseline file
+ * kept next to the benchmarks, a count that changes or a search that got
+ * bigger is flagged, naming the position that grew the most. Finally the AlphaBeta hot path is
+ * checked to allocate nothing per node
+ *
+ * Engines that are timed or random, like Lazy SMP and MCTS, are left out
+ * since their results depend on the machine, and ParallelAlphaBeta is only
+ * counted on one thread for the same reason
+ */
+public class Regression {
+
+    private static final String BASELINE = "benchmarks/regression.properties";
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+    private static final double ALLOCATION_BUDGET = 0.01;
+    private static final int ALLOCATION_DEPTH = 9;
+
+    private static final Suite[] SUITES = {
+        new Suite("3x3", 3, 3, 3, 9, UNLIMITED, false, 5478),
+        new Suite("4x4-3", 4, 4, 3, 3, 3, true, -1),
+        new Suite("4x4-4", 4, 4, 4, 2, 4, true, -1),
+        new Suite("5x5-4", 5, 5, 4, 2, 3, true, -1),
+    };
+
+    private static final Perft[] PERFTS = {
+        new Perft(3, 3, 3, 9, 255168),
+        new Perft(4, 4, 3, 6, -1),
+        new Perft(4, 4, 4, 5, -1),
+        new Perft(5, 5, 4, 4, -1),
+    };
+
+    private static int failures;
+
+    /**
+     * A set of positions and how deep to search them
+     */
+    private static class Suite {
+
+        private final String name;
+        private final int width;
+        private final int height;
+        private final int winLength;
+        private final int plies;
+        private final int depth;
+        private final boolean canonical;
+        private final int positions;
+
+        /**
+         * Default constructor for the Suite object
+         *
+         * @param name
+         * The name of the suite in the output and the baseline
+         *
+         * @param width
+         * The amount of columns on the board
+         *
+         * @param height
+         * The amount of rows on the board
+         *
+         * @param winLength
+         * How many pieces in a row are needed to win
+         *
+         * @param plies
+         * The suite holds every position with at most this many pieces
+         *
+         * @param depth
+         * How far ahead every position is searched, UNLIMITED for the whole game
+         *
+         * @param canonical
+         * True to keep only one position of every symmetric group
+         *
+         * @param positions
+         * How many positions the walk must find, or -1 if it is not known
+         */
+        private Suite(String name, int width, int height, int winLength, int plies, int depth, boolean canonical, int positions) {
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.winLength = winLength;
+            this.plies = plies;
+            this.depth = depth;
+            this.canonical = canonical;
+            this.positions = positions;
+        }
+    }
+
+    /**
+     * A board size and the depth to count its game tree to
+     */
+    private static class Perft {
+
+        private final int width;
+        private final int height;
+        private final int winLength;
+        private final int depth;
+        private final long leaves;
+
+        /**
+         * Default constructor for the Perft object
+         *
+         * @param width
+         * The amount of columns on the board
+         *
+         * @param height
+         * The amount of rows on the board
+         *
+         * @param winLength
+         * How many pieces in a row are needed to win
+         *
+         * @param depth
+         * How many moves deep to count
+         *
+         * @param leaves
+         * The known amount of leaves, or -1 if it is not known
+         */
+        private Perft(int width, int height, int winLength, int depth, long leaves) {
+            this.width = width;
+            this.height = height;
+            this.winLength = winLength;
+            this.depth = depth;
+            this.leaves = leaves;
+        }
+    }
+
+    /**
+     * An engine under test
+     */
+    private interface Engine {
+
+        /**
+         * Asks the engine for a move
+         *
+         * @param board
+         * The Board to find a move for, must not be changed
+         *
+         * @param depth
+         * How far ahead to search, UNLIMITED for the whole game
+         *
+         * @param table
+         * A cleared TranspositionTable the engine may use
+         *
+         * @param stats
+         * The SearchStats to fill in, left empty by engines that do not count
+         *
+         * @return
+         * Returns the slot the engine plays for the player to move
+         */
+        int getMove(Board board, int depth, TranspositionTable table, SearchStats stats);
+    }
+
+    /**
+     * Runs every suite and compares the results with the baseline
+     * Exits with status 1 if anything was flagged
+     *
+     * @param args
+     * Optionally --update to write the current counts as the new baseline,
+     * and the path of the baseline file
+     *
+     * @throws IOException
+     * Throws if the baseline could not be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        boolean update = false;
+        File file = new File(BASELINE);
+        for(String arg : args) {
+            if(arg.equals("--update")) update = true;
+            else file = new File(arg);
+        }
+
+        final Properties baseline = new Properties();
+        if(file.isFile()) {
+            try(Reader reader = new FileReader(file)) {
+                baseline.load(reader);
+            }
+        }
+
+        final Properties results = new Properties();
+        final long start = System.nanoTime();
+        for(Perft perft : PERFTS)
+            runPerft(perft, baseline, results);
+
+        for(Suite suite : SUITES)
+            runSuite(suite, baseline, results);
+
+        checkAllocation();
+
+        if(update) {
+            final File parent = file.getAbsoluteFile().getParentFile();
+            if(!parent.isDirectory() && !parent.mkdirs())
+                throw new IOException("Unable to create " + parent);
+
+            try(Writer writer = new FileWriter(file)) {
+                results.store(writer, "Regression baseline");
+            }
+            System.out.println("Wrote the baseline to " + file);
+        }else if(baseline.isEmpty()) {
+            System.out.println("No baseline at " + file + ", run with --update to create it");
+        }
+
+        System.out.printf("%d problem(s) in %.1fs%n", failures, (System.nanoTime() - start) / 1e9);
+        if(failures > 0)
+            System.exit(1);
+    }
+
+    /**
+     * Private helper method that counts the game tree with both boards
+     *
+     * @param perft
+     * The board size and depth to count
+     *
+     * @param baseline
+     * The counts of the last baseline
+     *
+     * @param results
+     * The counts of this run
+     */
+    private static void runPerft(Perft perft, Properties baseline, Properties results) {
+        final String name = "perft." + perft.width + "x" + perft.height + "-" + perft.winLength + "." + perft.depth;
+        final long board = perft(new Board(perft.width, perft.height, perft.winLength), perft.depth);
+        final long bitBoard = perft(new BitBoard(perft.width, perft.height, perft.winLength), perft.depth);
+        results.setProperty(name, Long.toString(bitBoard));
+
+        final String known = perft.leaves >= 0 ? Long.toString(perft.leaves) : baseline.getProperty(name);
+        if(board != bitBoard)
+            fail(name, "Board counts " + board + " but BitBoard counts " + bitBoard);
+        else if(known != null && Long.parseLong(known) != bitBoard)
+            fail(name, "counts " + bitBoard + " instead of " + known);
+        else
+            pass(name, bitBoard + " leaves");
+    }
+
+    /**
+     * Private helper method that checks every engine on the positions of a suite
+     *
+     * @param suite
+     * The suite to run
+     *
+     * @param baseline
+     * The node counts of the last baseline
+     *
+     * @param results
+     * The node counts of this run
+     */
+    private static void runSuite(Suite suite, Properties baseline, Properties results) {
+        final List<Board> positions = walk(suite);
+        if(suite.positions >= 0 && positions.size() != suite.positions)
+            fail(suite.name, "walks " + positions.size() + " positions instead of " + suite.positions);
+        else
+            pass(suite.name, positions.size() + " positions, depth " + (suite.depth == UNLIMITED ? "unlimited" : suite.depth));
+
+        // Only positions that are still being played are searched
+        positions.removeIf(Board::isGameOver);
+
+        final TranspositionTable table = new TranspositionTable(1 << 16, TranspositionTable.Replacement.DEPTH_PREFERRED);
+        final SearchStats stats = new SearchStats();
+        for(Map.Entry<String, Engine> engine : getEngines(suite).entrySet()) {
+            final String name = "nodes." + suite.name + "." + engine.getKey();
+            final long[] nodes = new long[positions.size()];
+            int wrong = 0;
+            String example = null;
+            for(int i = 0; i < positions.size(); i++) {
+                final Board board = positions.get(i);
+                table.clear();
+                final BitBoard root = new BitBoard(board);
+                final int expected = reference(root, root.getTurn(), suite.depth);
+                try {
+                    final int slot = engine.getValue().getMove(board, suite.depth, table, stats);
+                    nodes[i] = stats.getNodes();
+                    if(slot < 0 || root.getPiece(slot) != null) {
+                        throw new IllegalStateException("illegal slot " + slot);
+                    }else {
+                        root.move(slot);
+                        final int value = reference(root, board.getTurn(), child(suite.depth));
+                        if(value != expected)
+                            throw new IllegalStateException("slot " + slot + " scores " + value + " instead of " + expected);
+                    }
+                }catch(RuntimeException e) {
+                    if(wrong++ == 0)
+                        example = e.getMessage() + " on " + describe(board);
+                }
+            }
+
+            if(wrong > 0) {
+                fail("  " + engine.getKey(), wrong + " wrong move(s), first " + example);
+            }else if(Arrays.stream(nodes).sum() == 0) {
+                pass("  " + engine.getKey(), "all moves keep the value");
+            }else {
+                results.setProperty(name, join(nodes));
+                compare("  " + engine.getKey(), positions, nodes, baseline.getProperty(name));
+            }
+        }
+    }
+
+    /**
+     * Private helper method that compares node counts with the baseline
+     * Searches are deterministic, so any growth of the total is flagged, and
+     * the position that grew the most is named so it can be looked into
+     *
+     * @param name
+     * The name to print
+     *
+     * @param positions
+     * The positions that were searched
+     *
+     * @param nodes
+     * The nodes searched for every position in this run
+     *
+     * @param baseline
+     * The nodes searched for every position in the baseline, or null if there is none
+     */
+    private static void compare(String name, List<Board> positions, long[] nodes, String baseline) {
+        final long total = Arrays.stream(nodes).sum();
+        if(baseline == null) {
+            pass(name, total + " nodes, no baseline");
+            return;
+        }
+
+        final long[] before = Arrays.stream(baseline.trim().split(" ")).mapToLong(Long::parseLong).toArray();
+        if(before.length != nodes.length) {
+            fail(name, "the baseline has " + before.length + " positions instead of " + nodes.length + ", run with --update");
+            return;
+        }
+
+        int worst = 0;
+        for(int i = 1; i < nodes.length; i++)
+            if(nodes[i] - before[i] > nodes[worst] - before[worst])
+                worst = i;
+
+        final long old = Arrays.stream(before).sum();
+        String change = String.format("%d nodes, %+.2f%% against %d", total, 100.0 * (total - old) / old, old);
+        if(nodes[worst] > before[worst])
+            change += String.format(", worst %s %d instead of %d", describe(positions.get(worst)), nodes[worst], before[worst]);
+
+        if(total > old) fail(name, change);
+        else pass(name, change);
+    }
+
+    /**
+     * Private helper method that writes node counts as one line
+     *
+     * @param nodes
+     * The node counts
+     *
+     * @return
+     * Returns the counts separated by spaces
+     */
+    private static String join(long[] nodes) {
+        final StringBuilder sb = new StringBuilder();
+        for(long count : nodes)
+            sb.append(sb.length() == 0 ? "" : " ").append(count);
+
+        return sb.toString();
+    }
+
+    /**
+     * Private helper method that describes a position on one line
+     *
+     * @param board
+     * The position to describe
+     *
+     * @return
+     * Returns the slots row by row with . for an empty slot, followed by the player to move
+     */
+    private static String describe(Board board) {
+        final StringBuilder sb = new StringBuilder();
+        for(int slot = 0; slot < board.getWidth() * board.getHeight(); slot++)
+            sb.append(board.getPiece(slot) == null ? '.' : board.getPiece(slot).name().charAt(0));
+
+        return sb.append(' ').append(board.getTurn()).toString();
+    }
+
+    /**
+     * Private helper method that checks the AlphaBeta search allocates nothing per node
+     * A shallow and a deep search are measured and only the difference is
+     * counted, so the few objects every search needs cancel out
+     * Uses the allocation counter of the HotSpot thread bean, and is skipped
+     * on virtual machines without one
+     */
+    private static void checkAllocation() {
+        if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            pass("allocation", "skipped, not supported by this virtual machine");
+            return;
+        }
+
+        final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        final Board board = new Board(4, 4, 4);
+        final SearchStats stats = new SearchStats();
+
+        // Warm up first so that class loading and compilation are not counted
+        for(int i = 0; i < 3; i++)
+            AlphaBeta.getMove(board, board.getTurn(), ALLOCATION_DEPTH, null, stats);
+
+        final long[] bytes = new long[2];
+        final long[] nodes = new long[2];
+        final int[] depths = {ALLOCATION_DEPTH - 4, ALLOCATION_DEPTH};
+        for(int i = 0; i < depths.length; i++) {
+            final long before = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            AlphaBeta.getMove(board, board.getTurn(), depths[i], null, stats);
+            bytes[i] = bean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+            nodes[i] = stats.getNodes();
+        }
+
+        final double perNode = (double)Math.max(0, bytes[1] - bytes[0]) / (nodes[1] - nodes[0]);
+        final String result = String.format("%.4f bytes per node over %d nodes", perNode, nodes[1] - nodes[0]);
+        if(perNode > ALLOCATION_BUDGET) fail("allocation", result);
+        else pass("allocation", result);
+    }
+
+    /**
+     * Private helper method that lists the engines to check on a suite
+     *
+     * @param suite
+     * The suite the engines will run on
+     *
+     * @return
+     * Returns the engines by name, in the order they should run
+     */
+    private static Map<String, Engine> getEngines(Suite suite) {
+        final Map<String, Engine> engines = new LinkedHashMap<>();
+        engines.put("MiniMax", (board, depth, table, stats) -> MiniMax.getMove(board, board.getTurn(), depth, null, stats));
+        engines.put("MiniMax+table", (board, depth, table, stats) -> MiniMax.getMove(board, board.getTurn(), depth, table, stats));
+        engines.put("AlphaBeta", (board, depth, table, stats) -> AlphaBeta.getMove(board, board.getTurn(), depth, null, stats));
+        engines.put("AlphaBeta+table", (board, depth, table, stats) -> AlphaBeta.getMove(board, board.getTurn(), depth, table, stats));
+        engines.put("Analysis", Regression::analyze);
+        engines.put("ParallelAlphaBeta", (board, depth, table, stats) -> ParallelAlphaBeta.getMove(board, board.getTurn(), depth, 1, table, stats));
+
+        // With more threads the node count depends on timing, so only the moves are checked
+        engines.put("ParallelAlphaBeta-2", (board, depth, table, stats) -> {
+            stats.start();
+            return ParallelAlphaBeta.getMove(board, board.getTurn(), depth, 2, table);
+        });
+
+        // This always searches to the end of the game
+        if(suite.depth == UNLIMITED) {
+            engines.put("AlphaBeta-deepening", (board, depth, table, stats) ->
+                    AlphaBeta.getMoveUntil(new BitBoard(board), board.getTurn(), SearchContext.NO_DEADLINE, null, table, stats));
+        }
+
+        if(suite.depth == UNLIMITED && suite.width == 3 && suite.height == 3 && suite.winLength == 3) {
+            engines.put("SolvedTable", (board, depth, table, stats) -> {
+                stats.start();
+                final BitBoard root = new BitBoard(board);
+                if(SolvedTable.getValue(root) != reference(root, root.getTurn(), UNLIMITED))
+                    throw new IllegalStateException("stored value " + SolvedTable.getValue(root) + " is wrong");
+
+                return SolvedTable.getMove(board);
+            });
+        }
+
+        return engines;
+    }
+
+    /**
+     * Private helper method that runs the analysis and checks every move in it
+     *
+     * @param board
+     * The Board to analyse
+     *
+     * @param depth
+     * How far ahead to search
+     *
+     * @param table
+     * The TranspositionTable to use
+     *
+     * @param stats
+     * The SearchStats to fill in
+     *
+     * @return
+     * Returns the best slot of the analysis
+     */
+    private static int analyze(Board board, int depth, TranspositionTable table, SearchStats stats) {
+        final Analysis analysis = AlphaBeta.analyze(board, board.getTurn(), depth, table, stats);
+        final BitBoard root = new BitBoard(board);
+        if(analysis.getMoveCount() != Long.bitCount(root.getOpenSlots()))
+            throw new IllegalStateException("analysed " + analysis.getMoveCount() + " moves");
+
+        for(int i = 0; i < analysis.getMoveCount(); i++) {
+            final int slot = analysis.getSlot(i);
+            root.move(slot);
+            final int value = reference(root, board.getTurn(), child(depth));
+            root.unmove(slot);
+            if(value != analysis.getScore(i))
+                throw new IllegalStateException("analysis scores slot " + slot + " " + analysis.getScore(i) + " instead of " + value);
+        }
+
+        return analysis.getSlot(0);
+    }
+
+    /**
+     * Private helper method that collects the positions of a suite
+     *
+     * @param suite
+     * The suite to collect the positions for
+     *
+     * @return
+     * Returns every position with at most the suite's amount of pieces,
+     * finished games included, once each
+     */
+    private static List<Board> walk(Suite suite) {
+        final List<Board> positions = new ArrayList<>();
+        walk(new Board(suite.width, suite.height, suite.winLength), suite, new HashSet<>(), positions);
+        return positions;
+    }
+
+    /**
+     * Private helper method that collects the positions below a position
+     *
+     * @param board
+     * The position to collect from, unchanged on return
+     *
+     * @param suite
+     * The suite to collect the positions for
+     *
+     * @param seen
+     * The keys of the positions collected so far
+     *
+     * @param positions
+     * The list to add the positions to
+     */
+    private static void walk(Board board, Suite suite, Set<Long> seen, List<Board> positions) {
+        final long key = suite.canonical ? board.getCanonicalKey() : new BitBoard(board).getKey(Symmetry.IDENTITY);
+        if(!seen.add(key))
+            return;
+
+        positions.add(board.createCopy());
+        if(board.isGameOver() || board.getWidth() * board.getHeight() - board.getOpenSlotCount() >= suite.plies)
+            return;
+
+        for(int slot = board.getNextSlot(0); slot >= 0; slot = board.getNextSlot(slot + 1)) {
+            board.move(slot);
+            walk(board, suite, seen, positions);
+            board.unmove(slot);
+        }
+    }
+
+    /**
+     * Private helper method that counts the leaves of the game tree with the Board
+     * A leaf is a finished game or a position at the depth limit
+     *
+     * @param board
+     * The position to count from, unchanged on return
+     *
+     * @param depth
+     * How many more moves to play
+     *
+     * @return
+     * Returns the amount of leaves
+     */
+    private static long perft(Board board, int depth) {
+        if(depth == 0 || board.isGameOver())
+            return 1;
+
+        long leaves = 0;
+        for(int slot = board.getNextSlot(0); slot >= 0; slot = board.getNextSlot(slot + 1)) {
+            board.move(slot);
+            leaves += perft(board, depth - 1);
+            board.unmove(slot);
+        }
+
+        return leaves;
+    }
+
+    /**
+     * Private helper method that counts the leaves of the game tree with the BitBoard
+     *
+     * @param board
+     * The position to count from, unchanged on return
+     *
+     * @param depth
+     * How many more moves to play
+     *
+     * @return
+     * Returns the amount of leaves
+     */
+    private static long perft(BitBoard board, int depth) {
+        if(depth == 0 || board.isGameOver())
+            return 1;
+
+        long leaves = 0;
+        for(long open = board.getOpenSlots(); open != 0; open &= open - 1) {
+            final int slot = Long.numberOfTrailingZeros(open);
+            board.move(slot);
+            leaves += perft(board, depth - 1);
+            board.unmove(slot);
+        }
+
+        return leaves;
+    }
+
+    /**
+     * Private helper method that scores a position with a plain minimax
+     * Uses the same depth rule as the engines, a position is scored as it
+     * is once the depth drops below 0
+     *
+     * @param board
+     * The position to score, unchanged on return
+     *
+     * @param player
+     * The Piece enum the score is for
+     *
+     * @param depth
+     * How far ahead to look, UNLIMITED for the whole game
+     *
+     * @return
+     * Returns 1 if the player wins, -1 if they lose and 0 otherwise
+     */
+    private static int reference(BitBoard board, Board.Piece player, int depth) {
+        if(board.isGameOver())
+            return board.getWinner() == null ? 0 : board.getWinner() == player ? 1 : -1;
+        if(depth < 0)
+            return 0;
+
+        final boolean maximizing = board.getTurn() == player;
+        int best = maximizing ? -1 : 1;
+        for(long open = board.getOpenSlots(); open != 0; open &= open - 1) {
+            final int slot = Long.numberOfTrailingZeros(open);
+            board.move(slot);
+            final int score = reference(board, player, child(depth));
+            board.unmove(slot);
+            if(maximizing) best = Math.max(best, score);
+            else best = Math.min(best, score);
+
+            // Nothing beats a win, which keeps the reference fast enough
+            if(best == (maximizing ? 1 : -1))
+                break;
+        }
+
+        return best;
+    }
+
+    /**
+     * Private helper method to get the depth one move further down
+     *
+     * @param depth
+     * The depth of a position
+     *
+     * @return
+     * Returns the depth of the positions after it
+     */
+    private static int child(int depth) {
+        return depth == UNLIMITED ? UNLIMITED : depth - 1;
+    }
+
+    /**
+     * Private helper method that prints a check that passed
+     *
+     * @param name
+     * The name of the check
+     *
+     * @param detail
+     * What was found
+     */
+    private static void pass(String name, String detail) {
+        System.out.printf("ok    %-22s %s%n", name, detail);
+    }
+
+    /**
+     * Private helper method that prints and counts a check that failed
+     *
+     * @param name
+     * The name of the check
+     *
+     * @param detail
+     * What went wrong
+     */
+    private static void fail(String name, String detail) {
+        failures++;
+        System.out.printf("FAIL  %-22s %s%n", name, detail);
+    }
+}
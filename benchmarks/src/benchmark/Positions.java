@@ -0,0 +1,67 @@
+package benchmark;
+
+import game.Board;
+
+/**
+ * Static class that holds the fixed positions every benchmark runs on
+ * Using the same positions everywhere keeps results comparable between runs
+ */
+public class Positions {
+
+    public static final String OPENING = "opening";
+    public static final String MIDGAME = "midgame";
+    public static final String ENDGAME = "endgame";
+
+    /**
+     * Gets a fixed 3 by 3 position by name
+     *
+     * The opening is the empty board, the midgame is after X 4, O 0, X 8
+     * and the endgame is after X 4, O 0, X 8, O 2, X 1, O 7 with X to move
+     *
+     * @param name
+     * Either OPENING, MIDGAME or ENDGAME
+     *
+     * @return
+     * Returns a new Board in the position
+     *
+     * @throws IllegalArgumentException
+     * Throws if there is no position with the name
+     */
+    public static Board get(String name) {
+        switch(name) {
+            case OPENING: return play();
+            case MIDGAME: return play(4, 0, 8);
+            case ENDGAME: return play(4, 0, 8, 2, 1, 7);
+            default: throw new IllegalArgumentException("Unknown position " + name);
+        }
+    }
+
+    /**
+     * Gets a 3 by 3 position where the player to move wins with slot 2
+     * Used to measure the win check, since only a winning move tests every line
+     *
+     * @return
+     * Returns a new Board where X wins by playing slot 2
+     */
+    public static Board getWinning() {
+        return play(0, 3, 1, 4);
+    }
+
+    /**
+     * Private helper method that plays a list of slots on a new Board
+     *
+     * @param slots
+     * The slots to play in order
+     *
+     * @return
+     * Returns the Board after all slots were played
+     */
+    private static Board play(int... slots) {
+        final Board board = new Board();
+        for(int slot : slots)
+            if(!board.move(slot))
+                throw new IllegalStateException("Slot " + slot + " cannot be played");
+
+        return board;
+    }
+}
@@ -0,0 +1,32 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point that runs the benchmarks with the GC profiler attached
+ * The profiler adds the allocation rate and bytes allocated per operation
+ * next to the ops/s of every benchmark
+ */
+public class Runner {
+
+    /**
+     * Runs every benchmark, or only those matching a pattern
+     *
+     * @param args
+     * An optional regular expression of the benchmarks to run, such as "BoardBenchmark"
+     *
+     * @throws RunnerException
+     * Throws if JMH could not run the benchmarks
+     */
+    public static void main(String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ".*Benchmark.*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new org.openjdk.jmh.runner.Runner(options).run();
+    }
+}
@@ -0,0 +1,115 @@
+package game;
+
+import benchmark.Positions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the basic operations of the Board
+ * Every benchmark leaves the Board as it found it, so the position stays fixed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({Positions.OPENING, Positions.MIDGAME, Positions.ENDGAME})
+    public String position;
+
+    private Board board;
+    private Board winning;
+    private int slot;
+
+    /**
+     * Creates the Boards before every trial
+     */
+    @Setup
+    public void setup() {
+        this.board = Positions.get(this.position);
+        this.winning = Positions.getWinning();
+        this.slot = this.board.getNextSlot(0);
+    }
+
+    /**
+     * Plays a slot that does not end the game and takes it back
+     *
+     * @return
+     * Returns the result of the move so it is not optimized away
+     */
+    @Benchmark
+    public boolean move() {
+        final boolean moved = this.board.move(this.slot);
+        this.board.unmove(this.slot);
+        return moved;
+    }
+
+    /**
+     * Plays a slot that wins the game and takes it back
+     * A winning move is the worst case for the win check
+     *
+     * @return
+     * Returns the winner so it is not optimized away
+     */
+    @Benchmark
+    public Board.Piece winCheck() {
+        this.winning.move(2);
+        final Board.Piece winner = this.winning.getWinner();
+        this.winning.unmove(2);
+        return winner;
+    }
+
+    /**
+     * Copies the Board the way the AI used to for every node
+     *
+     * @return
+     * Returns the copy so it is not optimized away
+     */
+    @Benchmark
+    public Board createCopy() {
+        return this.board.createCopy();
+    }
+
+    /**
+     * Walks the open slots through Board#getAvailableSlots()
+     *
+     * @return
+     * Returns the sum of the open slots so they are not optimized away
+     */
+    @Benchmark
+    public int availableSlots() {
+        int sum = 0;
+        for(int slot : this.board.getAvailableSlots())
+            sum += slot;
+
+        return sum;
+    }
+
+    /**
+     * Walks the open slots through Board#getNextSlot(int)
+     *
+     * @return
+     * Returns the sum of the open slots so they are not optimized away
+     */
+    @Benchmark
+    public int nextSlot() {
+        int sum = 0;
+        for(int slot = this.board.getNextSlot(0); slot >= 0; slot = this.board.getNextSlot(slot + 1))
+            sum += slot;
+
+        return sum;
+    }
+}
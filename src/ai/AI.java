@@ -1,17 +1,36 @@
 package ai;
 
+import game.BitBoard;
 import game.Board;
 
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Static class that acts as a wrapper for all AI algorithms
- * This includes MiniMax, AlphaBeta pruning, and Random moves
+ * This includes MiniMax, AlphaBeta pruning, Monte Carlo Tree Search, opening books, and Random moves
  */
 public class AI {
 
+    private static final TranspositionTable TABLE = new TranspositionTable(1 << 18, TranspositionTable.Replacement.DEPTH_PREFERRED);
+    private static final MCTS TREE = new MCTS(1 << 18);
+    private static final ExecutorService SEARCHES = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "AI-Search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * Wrapper method for the AlphaBeta pruning algorithm
      *
-     * @see AlphaBeta#getMove(Board, Board.Piece)
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * @see AlphaBeta#getMove(Board, Board.Piece, int, TranspositionTable)
      *
      * @param board
      * The Board object to find the next move for
@@ -23,13 +42,15 @@ public class AI {
      * Returns the slot number that the AI wants to play
      */
     public static int getAlphaBetaMove(Board board, Board.Piece player) {
-        return AlphaBeta.getMove(board, player);
+        return AlphaBeta.getMove(board, player, Integer.MAX_VALUE, TABLE);
     }
 
     /**
      * Wrapper method for the AlphaBeta pruning algorithm
      *
-     * @see AlphaBeta#getMove(Board, Board.Piece, int)
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * @see AlphaBeta#getMove(Board, Board.Piece, int, TranspositionTable)
      *
      * @param board
      * The Board object to find the next move for
@@ -44,13 +65,309 @@ public class AI {
      * Returns the slot number that the AI wants to play
      */
     public static int getAlphaBetaMove(Board board, Board.Piece player, int depth) {
-        return AlphaBeta.getMove(board, player, depth);
+        return AlphaBeta.getMove(board, player, depth, TABLE);
+    }
+
+    /**
+     * Wrapper method for the AlphaBeta pruning algorithm
+     * Lets the caller pick the TranspositionTable, its size and its replacement policy
+     *
+     * @see AlphaBeta#getMove(Board, Board.Piece, int, TranspositionTable)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look for moves
+     *
+     * @param table
+     * The TranspositionTable to cache results in, or null to disable caching
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getAlphaBetaMove(Board board, Board.Piece player, int depth, TranspositionTable table) {
+        return AlphaBeta.getMove(board, player, depth, table);
+    }
+
+    /**
+     * Wrapper method for the AlphaBeta pruning algorithm
+     * Fills in a SearchStats object with how much work the search took
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * @see AlphaBeta#getMove(Board, Board.Piece, int, TranspositionTable, SearchStats)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look for moves
+     *
+     * @param stats
+     * The SearchStats to clear and fill in, can be reused between calls
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getAlphaBetaMove(Board board, Board.Piece player, int depth, SearchStats stats) {
+        return AlphaBeta.getMove(board, player, depth, TABLE, stats);
+    }
+
+    /**
+     * Wrapper method for the iterative deepening AlphaBeta algorithm
+     * Returns the best move found within a time budget instead of a fixed depth
+     * Results are cached in a TranspositionTable shared by every call
+     * Positions in the OpeningBook of the board size are looked up instead
+     *
+     * @see AlphaBeta#getTimedMove(Board, Board.Piece, long, TranspositionTable)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param millis
+     * How many milliseconds the AI may think for
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getTimedAlphaBetaMove(Board board, Board.Piece player, long millis) {
+        final int book = getBookMove(board, player);
+        return book >= 0 ? book : AlphaBeta.getTimedMove(board, player, millis, TABLE);
+    }
+
+    /**
+     * Wrapper method for the iterative deepening AlphaBeta algorithm
+     * Fills in a SearchStats object with how much work the search took
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * @see AlphaBeta#getTimedMove(Board, Board.Piece, long, TranspositionTable, SearchStats)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param millis
+     * How many milliseconds the AI may think for
+     *
+     * @param stats
+     * The SearchStats to clear and fill in, can be reused between calls
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getTimedAlphaBetaMove(Board board, Board.Piece player, long millis, SearchStats stats) {
+        return AlphaBeta.getTimedMove(board, player, millis, TABLE, stats);
+    }
+
+    /**
+     * Wrapper method for the parallel AlphaBeta pruning algorithm
+     * Splits the search over several threads of a ForkJoinPool
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * @see ParallelAlphaBeta#getMove(Board, Board.Piece, int, int, TranspositionTable)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look for moves
+     *
+     * @param threads
+     * How many threads the AI may use
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getParallelAlphaBetaMove(Board board, Board.Piece player, int depth, int threads) {
+        return ParallelAlphaBeta.getMove(board, player, depth, threads, TABLE);
+    }
+
+    /**
+     * Wrapper method for the Lazy SMP AlphaBeta algorithm
+     * Runs the timed search on several threads that share the TranspositionTable
+     * Results are cached in a TranspositionTable shared by every call
+     * Positions in the OpeningBook of the board size are looked up instead
+     *
+     * @see LazySMP#getMove(Board, Board.Piece, long, int, TranspositionTable)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param millis
+     * How many milliseconds the AI may think for
+     *
+     * @param threads
+     * How many threads the AI may use
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getLazySMPMove(Board board, Board.Piece player, long millis, int threads) {
+        final int book = getBookMove(board, player);
+        return book >= 0 ? book : LazySMP.getMove(board, player, millis, threads, TABLE);
+    }
+
+    /**
+     * Wrapper method for the AlphaBeta analysis of a position
+     * Gives the exact score and principal variation of every legal move
+     * from one search, for hints and for looking at positions in bulk
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * @see AlphaBeta#analyze(Board, Board.Piece, int, TranspositionTable)
+     *
+     * @param board
+     * The Board object to analyse
+     *
+     * @param player
+     * The Piece enum that the scores should be for
+     *
+     * @param depth
+     * How far ahead every move should be searched
+     *
+     * @return
+     * Returns the Analysis of every legal move, best first
+     */
+    public static Analysis analyze(Board board, Board.Piece player, int depth) {
+        return AlphaBeta.analyze(board, player, depth, TABLE);
+    }
+
+    /**
+     * Asks the AI for a move without waiting for it
+     * Runs the iterative deepening AlphaBeta algorithm on a shared pool of
+     * background threads, see AI#requestMove(Board, Board.Piece, long, Executor)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param millis
+     * How many milliseconds from now the AI may think for
+     *
+     * @return
+     * Returns a CompletableFuture that completes with the slot the AI wants to play
+     */
+    public static CompletableFuture<Integer> requestMove(Board board, Board.Piece player, long millis) {
+        return requestMove(board, player, millis, SEARCHES);
+    }
+
+    /**
+     * Asks the AI for a move without waiting for it
+     * Runs the iterative deepening AlphaBeta algorithm on an executor
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * The position is copied before this method returns, so the Board can
+     * be changed or reset right away without disturbing the search
+     * When the deadline passes the best move found so far is completed, and
+     * cancelling the returned future stops the search within a few thousand
+     * nodes, freeing the thread for other work
+     * Positions in the OpeningBook of the board size complete right away
+     *
+     * @see AlphaBeta#getMoveUntil(BitBoard, Board.Piece, long, AtomicBoolean, TranspositionTable)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param millis
+     * How many milliseconds from now the AI may think for, including any
+     * time the request waits for a thread
+     *
+     * @param executor
+     * The Executor to run the search on
+     *
+     * @return
+     * Returns a CompletableFuture that completes with the slot the AI wants
+     * to play, or -1 if the game is already over
+     */
+    public static CompletableFuture<Integer> requestMove(Board board, Board.Piece player, long millis, Executor executor) {
+        final int book = getBookMove(board, player);
+        if(book >= 0)
+            return CompletableFuture.completedFuture(book);
+
+        final BitBoard root = new BitBoard(board);
+        final long now = System.nanoTime();
+        final long deadline = millis >= (SearchContext.NO_DEADLINE - now) / 1_000_000
+                ? SearchContext.NO_DEADLINE
+                : now + Math.max(0, millis) * 1_000_000;
+
+        final AtomicBoolean abort = new AtomicBoolean();
+        final CompletableFuture<Integer> move = CompletableFuture.supplyAsync(
+                () -> AlphaBeta.getMoveUntil(root, player, deadline, abort, TABLE), executor);
+
+        // Also fires when the caller cancels, which is what stops the search
+        move.whenComplete((slot, e) -> abort.set(true));
+        return move;
+    }
+
+    /**
+     * Starts thinking about the next move while the opponent is to move
+     * Runs on the same shared pool of background threads as AI#requestMove
+     *
+     * @see Ponder
+     *
+     * @param board
+     * The Board object on which the opponent is to move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @return
+     * Returns the Ponder to ask for the move once the opponent moved
+     */
+    public static Ponder startPondering(Board board, Board.Piece player) {
+        return startPondering(board, player, SEARCHES);
+    }
+
+    /**
+     * Starts thinking about the next move while the opponent is to move
+     * The results go into the TranspositionTable shared by every call, so
+     * the search after the opponent's move picks them up
+     *
+     * @see Ponder
+     *
+     * @param board
+     * The Board object on which the opponent is to move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param executor
+     * The Executor to ponder and later search on
+     *
+     * @return
+     * Returns the Ponder to ask for the move once the opponent moved
+     */
+    public static Ponder startPondering(Board board, Board.Piece player, Executor executor) {
+        return new Ponder(board, player, TABLE, executor);
     }
 
     /**
      * Wrapper method for the MiniMax pruning algorithm
      *
-     * @see MiniMax#getMove(Board, Board.Piece)
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * @see MiniMax#getMove(Board, Board.Piece, int, TranspositionTable)
      *
      * @param board
      * The Board object to find the next move for
@@ -62,13 +379,15 @@ public class AI {
      * Returns the slot number that the AI wants to play
      */
     public static int getMiniMaxMove(Board board, Board.Piece player) {
-        return MiniMax.getMove(board, player);
+        return MiniMax.getMove(board, player, Integer.MAX_VALUE, TABLE);
     }
 
     /**
      * Wrapper method for the MiniMax pruning algorithm
      *
-     * @see MiniMax#getMove(Board, Board.Piece, int)
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * @see MiniMax#getMove(Board, Board.Piece, int, TranspositionTable)
      *
      * @param board
      * The Board object to find the next move for
@@ -83,7 +402,177 @@ public class AI {
      * Returns the slot number that the AI wants to play
      */
     public static int getMiniMaxMove(Board board, Board.Piece player, int depth) {
-        return MiniMax.getMove(board, player, depth);
+        return MiniMax.getMove(board, player, depth, TABLE);
+    }
+
+    /**
+     * Wrapper method for the MiniMax pruning algorithm
+     * Lets the caller pick the TranspositionTable, its size and its replacement policy
+     *
+     * @see MiniMax#getMove(Board, Board.Piece, int, TranspositionTable)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look for moves
+     *
+     * @param table
+     * The TranspositionTable to cache results in, or null to disable caching
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getMiniMaxMove(Board board, Board.Piece player, int depth, TranspositionTable table) {
+        return MiniMax.getMove(board, player, depth, table);
+    }
+
+    /**
+     * Wrapper method for the MiniMax algorithm
+     * Fills in a SearchStats object with how much work the search took
+     * Results are cached in a TranspositionTable shared by every call
+     *
+     * @see MiniMax#getMove(Board, Board.Piece, int, TranspositionTable, SearchStats)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look for moves
+     *
+     * @param stats
+     * The SearchStats to clear and fill in, can be reused between calls
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getMiniMaxMove(Board board, Board.Piece player, int depth, SearchStats stats) {
+        return MiniMax.getMove(board, player, depth, TABLE, stats);
+    }
+
+    /**
+     * Wrapper method for the Monte Carlo Tree Search algorithm
+     * Plays random games on one thread until the time budget runs out
+     * The tree is shared by every call and reused between moves of a game
+     *
+     * @see MCTS#getMove(Board, long, long, int)
+     *
+     * @param board
+     * The Board object to find the next move for the player to move
+     *
+     * @param millis
+     * How many milliseconds the AI may think for
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getMCTSMove(Board board, long millis) {
+        return TREE.getMove(board, millis, Long.MAX_VALUE, 1);
+    }
+
+    /**
+     * Wrapper method for the Monte Carlo Tree Search algorithm
+     * Stops at whichever budget runs out first
+     * The tree is shared by every call and reused between moves of a game
+     *
+     * @see MCTS#getMove(Board, long, long, int)
+     *
+     * @param board
+     * The Board object to find the next move for the player to move
+     *
+     * @param millis
+     * How many milliseconds the AI may think for, or Long.MAX_VALUE for no limit
+     *
+     * @param playouts
+     * How many random games the AI may play, or Long.MAX_VALUE for no limit
+     *
+     * @param threads
+     * How many threads the AI may use
+     *
+     * @return
+     * Returns the slot number that the AI wants to play
+     */
+    public static int getMCTSMove(Board board, long millis, long playouts, int threads) {
+        return TREE.getMove(board, millis, playouts, threads);
+    }
+
+    /**
+     * Gets the best move from the solved game table
+     * This is a single lookup instead of a search
+     *
+     * @see SolvedTable#getMove(Board)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @return
+     * Returns the slot number that the AI wants to play for the player to move
+     */
+    public static int getSolvedMove(Board board) {
+        return SolvedTable.getMove(board);
+    }
+
+    /**
+     * Gets the best move for the 4x4 game from the endgame table
+     * This is one lookup per open slot instead of a search, but the table
+     * has to be built first by running EndgameTable
+     *
+     * @see EndgameTable#getMove(Board)
+     *
+     * @param board
+     * The Board object to find the next move for, must be 4 by 4 with 4 in a row
+     *
+     * @return
+     * Returns the slot number that the AI wants to play for the player to move
+     */
+    public static int getEndgameMove(Board board) {
+        return EndgameTable.getMove(board);
+    }
+
+    /**
+     * Gets the best move from the opening book of the board size
+     * Books are built ahead of time by running OpeningBook and loaded from
+     * the data folder the first time a board size is asked for
+     * Only the timed, Lazy SMP and asynchronous moves play from the book,
+     * the depth limited, instrumented and MCTS searches always search
+     *
+     * @see OpeningBook#getMove(BitBoard)
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @return
+     * Returns the slot number the book plays for the player to move, or -1
+     * if there is no book for the size or the position is not in it
+     */
+    public static int getBookMove(Board board) {
+        return getBookMove(board, board.getTurn());
+    }
+
+    /**
+     * Private helper method to look a position up in the opening book
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @return
+     * Returns the slot number the book plays, or -1 if there is none
+     */
+    private static int getBookMove(Board board, Board.Piece player) {
+        if(player != board.getTurn() || board.isGameOver())
+            return -1;
+
+        final OpeningBook book = OpeningBook.find(board.getWidth(), board.getHeight(), board.getWinLength());
+        return book == null ? -1 : book.getMove(new BitBoard(board));
     }
 
     /**
@@ -97,6 +586,43 @@ public class AI {
      * Returns the random slot number that the AI wants to play
      */
     public static int getRandomMove(Board board) {
-        return (int)board.getAvailableSlots().toArray()[(int)(Math.random() * board.getAvailableSlots().size())];
+        return getRandomMove(board, ThreadLocalRandom.current().nextInt(Math.max(board.getOpenSlotCount(), 1)));
+    }
+
+    /**
+     * Gets a random slot from the available slots using a given generator
+     * Lets every thread of a simulation use its own seeded generator
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param random
+     * The generator to pick the slot with
+     *
+     * @return
+     * Returns the random slot number that the AI wants to play
+     */
+    public static int getRandomMove(Board board, SplittableRandom random) {
+        return getRandomMove(board, random.nextInt(Math.max(board.getOpenSlotCount(), 1)));
+    }
+
+    /**
+     * Private helper method that walks to an open slot without allocating
+     *
+     * @param board
+     * The Board object to find the next move for
+     *
+     * @param n
+     * How many open slots to skip
+     *
+     * @return
+     * Returns the nth open slot, or -1 if the Board has no open slots
+     */
+    private static int getRandomMove(Board board, int n) {
+        int slot = board.getNextSlot(0);
+        for(int i = 0; i < n && slot >= 0; i++)
+            slot = board.getNextSlot(slot + 1);
+
+        return slot;
     }
 }
\ No newline at end of file
@@ -1,6 +1,11 @@
 package ai;
 
+import game.BitBoard;
 import game.Board;
+import game.Symmetry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Static class for the AlphaBeta algorithm
@@ -10,6 +15,8 @@ public class AlphaBeta {
 
     private static final int SLOT = 0;
     private static final int SCORE = 1;
+    private static final int LOSS = -1;
+    private static final int WIN = 1;
 
     /**
      * Gets the best move to be played next
@@ -25,7 +32,7 @@ public class AlphaBeta {
      * Returns the best slot to be played
      */
     protected static int getMove(Board board, Board.Piece player) {
-        return alphabeta(board, player, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE)[SLOT];
+        return getMove(board, player, Integer.MAX_VALUE, null);
     }
 
     /**
@@ -45,7 +52,527 @@ public class AlphaBeta {
      * Returns the best slot to be played
      */
     protected static int getMove(Board board, Board.Piece player, int depth) {
-        return alphabeta(board, player, Integer.MIN_VALUE, Integer.MAX_VALUE, depth)[SLOT];
+        return getMove(board, player, depth, null);
+    }
+
+    /**
+     * Gets the best move to be played next
+     * Positions that were already searched are read from the table instead
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look before picking a slot
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @return
+     * Returns the best slot to be played
+     */
+    protected static int getMove(Board board, Board.Piece player, int depth, TranspositionTable table) {
+        return getMove(board, player, depth, table, new SearchStats());
+    }
+
+    /**
+     * Gets the best move to be played next and records how much work it took
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look before picking a slot
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @param stats
+     * The SearchStats to clear and fill in
+     *
+     * @return
+     * Returns the best slot to be played
+     */
+    protected static int getMove(Board board, Board.Piece player, int depth, TranspositionTable table, SearchStats stats) {
+        stats.start();
+        try {
+            final BitBoard root = new BitBoard(board);
+            if(depth < 0 || root.isGameOver())
+                return -1;
+
+            final SearchContext search = new SearchContext(table, false, SearchContext.NO_DEADLINE,
+                                                           board.getWidth() * board.getHeight(), null, 0, stats);
+            return search(root, player, depth, -1, search)[SLOT];
+        }finally {
+            stats.stop();
+        }
+    }
+
+    /**
+     * Gets the best move that can be found within a time budget
+     * Searches one ply deeper every iteration until the budget runs out
+     * or the whole game has been searched, and plays the best slot of the
+     * deepest iteration that finished
+     *
+     * Every iteration searches the best slot of the previous one first, and
+     * below the root the moves are ordered by the table, killer moves and the
+     * history heuristic before falling back to the center and corners
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param millis
+     * How many milliseconds the search may take
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @return
+     * Returns the best slot to be played
+     */
+    protected static int getTimedMove(Board board, Board.Piece player, long millis, TranspositionTable table) {
+        return getTimedMove(board, player, millis, table, new SearchStats());
+    }
+
+    /**
+     * Gets the best move that can be found within a time budget and records
+     * how much work it took, summed over every iteration
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param millis
+     * How many milliseconds the search may take
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @param stats
+     * The SearchStats to clear and fill in
+     *
+     * @return
+     * Returns the best slot to be played
+     */
+    protected static int getTimedMove(Board board, Board.Piece player, long millis, TranspositionTable table, SearchStats stats) {
+        stats.start();
+        try {
+            final BitBoard root = new BitBoard(board);
+            if(root.isGameOver())
+                return -1;
+
+            final long deadline = System.nanoTime() + Math.max(0, millis) * 1_000_000;
+            final SearchContext search = new SearchContext(table, true, deadline, board.getWidth() * board.getHeight(), null, 0, stats);
+            return iterate(root, player, 0, search);
+        }finally {
+            stats.stop();
+        }
+    }
+
+    /**
+     * Gets the best move of a position that can be solved within a time budget
+     * Deepens like getTimedMove, but the move of an unfinished search is
+     * never returned, so every slot that comes back is as good as a search
+     * to the end of the game
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param millis
+     * How many milliseconds the search may take
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @return
+     * Returns the best slot to be played, or -1 if the game is over or the
+     * time ran out before the position was solved
+     */
+    static int getSolvedMove(Board board, Board.Piece player, long millis, TranspositionTable table) {
+        final BitBoard root = new BitBoard(board);
+        if(root.isGameOver())
+            return -1;
+
+        final long deadline = System.nanoTime() + Math.max(0, millis) * 1_000_000;
+        final SearchContext search = new SearchContext(table, true, deadline, board.getWidth() * board.getHeight());
+        final int slot = iterate(root, player, 0, search);
+        return search.wasStopped() ? -1 : slot;
+    }
+
+    /**
+     * Gets the best move that can be found before a deadline
+     * Meant for searches that run on another thread than the one playing the
+     * game, which hands over a copy of the position and can stop the search
+     * at any time through the abort flag
+     *
+     * @param root
+     * The BitBoard to check for the best move, owned by the search
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param deadline
+     * The System#nanoTime() after which the search should stop, or SearchContext#NO_DEADLINE
+     *
+     * @param abort
+     * A flag that stops the search once it is set
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @return
+     * Returns the best slot of the deepest iteration that finished, or -1 if the game is over
+     */
+    static int getMoveUntil(BitBoard root, Board.Piece player, long deadline, AtomicBoolean abort, TranspositionTable table) {
+        return getMoveUntil(root, player, deadline, abort, table, new SearchStats());
+    }
+
+    /**
+     * Gets the best move that can be found before a deadline and records
+     * how much work it took, summed over every iteration
+     *
+     * @param root
+     * The BitBoard to check for the best move, owned by the search
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param deadline
+     * The System#nanoTime() after which the search should stop, or SearchContext#NO_DEADLINE
+     *
+     * @param abort
+     * A flag that stops the search once it is set, or null for none
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @param stats
+     * The SearchStats to clear and fill in
+     *
+     * @return
+     * Returns the best slot of the deepest iteration that finished, or -1 if the game is over
+     */
+    static int getMoveUntil(BitBoard root, Board.Piece player, long deadline, AtomicBoolean abort, TranspositionTable table, SearchStats stats) {
+        stats.start();
+        try {
+            if(root.isGameOver())
+                return -1;
+
+            final int slots = root.getWidth() * root.getHeight();
+            final SearchContext search = new SearchContext(table, true, deadline, slots, abort, 0, stats);
+            return iterate(root, player, 0, search);
+        }finally {
+            stats.stop();
+        }
+    }
+
+    /**
+     * Scores every legal move of a position and finds its principal variation
+     *
+     * @see AlphaBeta#analyze(Board, Board.Piece, int, TranspositionTable, SearchStats)
+     *
+     * @param board
+     * The Board to analyse
+     *
+     * @param player
+     * The Piece enum that the scores should be for
+     *
+     * @param depth
+     * How far ahead every move should be searched
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for a
+     * table that only lives for this analysis
+     *
+     * @return
+     * Returns the Analysis with the exact score of every legal move at the depth
+     */
+    protected static Analysis analyze(Board board, Board.Piece player, int depth, TranspositionTable table) {
+        return analyze(board, player, depth, table, new SearchStats());
+    }
+
+    /**
+     * Scores every legal move of a position and finds its principal variation
+     * Unlike a normal search every move needs an exact score, so no move can
+     * be cut off at the root, but scores are only -1, 0 or 1 and every move
+     * is searched with the window from -1 to 1 instead of the full one
+     * That window still gives exact scores, lets a node stop at the first
+     * win or loss it proves, and makes every bound in the table usable by
+     * the moves searched after it, along with the killer moves and history
+     * Slots that a symmetry of the position maps onto each other are only
+     * searched once, the others get the same score and a mirrored line
+     *
+     * @param board
+     * The Board to analyse
+     *
+     * @param player
+     * The Piece enum that the scores should be for
+     *
+     * @param depth
+     * How far ahead every move should be searched
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for a
+     * table that only lives for this analysis
+     *
+     * @param stats
+     * The SearchStats to clear and fill in
+     *
+     * @return
+     * Returns the Analysis with the exact score of every legal move at the depth
+     */
+    protected static Analysis analyze(Board board, Board.Piece player, int depth, TranspositionTable table, SearchStats stats) {
+        stats.start();
+        try {
+            final BitBoard root = new BitBoard(board);
+            if(depth < 0 || root.isGameOver())
+                return new Analysis(player, depth, new int[0], new int[0], new int[0][]);
+
+            // The line of a move is read back by searching, which needs the table
+            final TranspositionTable cache = table != null ? table
+                    : new TranspositionTable(1 << 16, TranspositionTable.Replacement.DEPTH_PREFERRED);
+            final SearchContext search = new SearchContext(cache, true, SearchContext.NO_DEADLINE,
+                                                           board.getWidth() * board.getHeight(), null, 0, stats);
+
+            final int open = Long.bitCount(root.getOpenSlots());
+            final int[] slots = new int[open];
+            final int[] scores = new int[open];
+            final int[][] lines = new int[open][];
+            stats.nodes++;
+
+            int searched = 0;
+            final int count = search.orderMoves(root, 0, root.getUniqueSlots(), -1);
+            for(int i = 0; i < count; i++, searched++) {
+                final int slot = search.getMove(0, i);
+                root.move(slot);
+                slots[searched] = slot;
+                scores[searched] = alphabeta(root, player, LOSS, WIN, depth - 1, 1, search);
+                lines[searched] = getLine(root, player, slot, scores[searched], depth - 1, search);
+                root.unmove(slot);
+            }
+
+            // Every other slot is the mirror image of one that was searched
+            final Symmetry symmetries = root.getSymmetries();
+            final long xMask = root.getMask(Board.Piece.X);
+            final long oMask = root.getMask(Board.Piece.O);
+            int filled = searched;
+            for(long rest = root.getOpenSlots() & ~root.getUniqueSlots(); rest != 0; rest &= rest - 1) {
+                final int slot = Long.numberOfTrailingZeros(rest);
+                for(int symmetry = 1; symmetry < symmetries.count(); symmetry++) {
+                    if(symmetries.applyMask(symmetry, xMask) != xMask || symmetries.applyMask(symmetry, oMask) != oMask)
+                        continue;
+
+                    final int twin = indexOf(slots, searched, symmetries.apply(symmetry, slot));
+                    if(twin < 0)
+                        continue;
+
+                    slots[filled] = slot;
+                    scores[filled] = scores[twin];
+                    lines[filled] = new int[lines[twin].length];
+                    for(int j = 0; j < lines[twin].length; j++)
+                        lines[filled][j] = symmetries.invert(symmetry, lines[twin][j]);
+
+                    filled++;
+                    break;
+                }
+            }
+
+            return new Analysis(player, depth, slots, scores, lines);
+        }finally {
+            stats.stop();
+        }
+    }
+
+    /**
+     * Private helper method that reads back the principal variation of a move
+     * At every position along the line the move whose score matches the
+     * score of the position is found with a search of the narrowest window
+     * around that score, which the table answers almost every time
+     *
+     * @param board
+     * The BitBoard right after the move, unchanged on return
+     *
+     * @param player
+     * The Piece enum that the scores are for
+     *
+     * @param slot
+     * The move that was played
+     *
+     * @param score
+     * The exact score of the position after the move
+     *
+     * @param depth
+     * The depth the position after the move was searched with
+     *
+     * @param search
+     * The SearchContext of the current search
+     *
+     * @return
+     * Returns the slots of the line, starting with the move
+     */
+    private static int[] getLine(BitBoard board, Board.Piece player, int slot, int score, int depth, SearchContext search) {
+        final int[] line = new int[Long.bitCount(board.getOpenSlots()) + 1];
+        line[0] = slot;
+
+        int length = 1;
+        for(int remaining = depth; remaining >= 0 && !board.isGameOver(); remaining--) {
+            final int ply = length;
+            final int count = search.orderMoves(board, ply, board.getOpenSlots(), -1);
+            int next = -1;
+            for(int i = 0; i < count && next < 0; i++) {
+                final int move = search.getMove(ply, i);
+                board.move(move);
+                if(alphabeta(board, player, score - 1, score + 1, remaining - 1, ply + 1, search) == score)
+                    next = move;
+                board.unmove(move);
+            }
+
+            if(next < 0)
+                break;
+
+            board.move(next);
+            line[length++] = next;
+        }
+
+        // Take the line back so the board is the same as before
+        for(int i = length - 1; i > 0; i--)
+            board.unmove(line[i]);
+
+        return Arrays.copyOf(line, length);
+    }
+
+    /**
+     * Private helper method to find a slot among the first entries of an array
+     *
+     * @param slots
+     * The array to look in
+     *
+     * @param length
+     * How many entries of the array are filled in
+     *
+     * @param slot
+     * The slot to find
+     *
+     * @return
+     * Returns the index of the slot, or -1 if it is not there
+     */
+    private static int indexOf(int[] slots, int length, int slot) {
+        for(int i = 0; i < length; i++)
+            if(slots[i] == slot)
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * Helper method that deepens the search until it is stopped or done
+     * Shared with LazySMP whose threads all run this same loop
+     *
+     * @param root
+     * The BitBoard to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param startDepth
+     * The depth of the first iteration
+     *
+     * @param search
+     * The SearchContext of the current search
+     *
+     * @return
+     * Returns the best slot of the deepest iteration that finished
+     */
+    static int iterate(BitBoard root, Board.Piece player, int startDepth, SearchContext search) {
+        final int open = Long.bitCount(root.getOpenSlots());
+
+        int bestSlot = -1;
+        for(int depth = Math.min(startDepth, open - 1); depth < open; depth++) {
+            final int[] result = search(root, player, depth, bestSlot, search);
+            if(search.wasStopped()) {
+                // Only trust an unfinished iteration if no iteration finished at all
+                if(bestSlot < 0) bestSlot = result[SLOT];
+                break;
+            }
+
+            // A win or loss is already proven and searching deeper cannot change it
+            bestSlot = result[SLOT];
+            if(result[SCORE] != 0)
+                break;
+        }
+
+        if(bestSlot < 0) {
+            search.orderMoves(root, 0, root.getUniqueSlots(), -1);
+            bestSlot = search.getMove(0, 0);
+        }
+
+        return bestSlot;
+    }
+
+    /**
+     * Searches every distinct slot of the root position
+     * Slots that a symmetry of the position maps onto a lower slot lead to
+     * the same score, so only the lowest of each group has to be searched
+     *
+     * @param root
+     * The BitBoard to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look before picking a slot
+     *
+     * @param pvSlot
+     * The best slot of the previous iteration, searched first, or -1 for none
+     *
+     * @param search
+     * The SearchContext of the current search
+     *
+     * @return
+     * Returns an int array of size two where the int stored at index 0 is
+     * the best slot to play and the int stored at index 1 is its score
+     */
+    private static int[] search(BitBoard root, Board.Piece player, int depth, int pvSlot, SearchContext search) {
+        final boolean maximizing = root.getTurn() == player;
+        int alpha = Integer.MIN_VALUE;
+        int beta = Integer.MAX_VALUE;
+        int bestSlot = -1;
+        search.getStats().nodes++;
+
+        final int count = search.orderMoves(root, 0, root.getUniqueSlots(), pvSlot);
+        for(int i = 0; i < count; i++) {
+            final int slot = search.getMove(0, i);
+            root.move(slot);
+            final int score = alphabeta(root, player, alpha, beta, depth - 1, 1, search);
+            root.unmove(slot);
+            if(search.wasStopped())
+                break;
+
+            if(maximizing && score > alpha) {
+                alpha = score;
+                bestSlot = slot;
+            }else if(!maximizing && score < beta) {
+                beta = score;
+                bestSlot = slot;
+            }
+        }
+
+        return new int[]{bestSlot, maximizing ? alpha : beta};
     }
 
     /**
@@ -54,8 +581,19 @@ public class AlphaBeta {
      * Recommended to learn what alpha-beta pruning is before trying
      * to understand the method
      *
+     * A table entry is only used when it was searched exactly as many plies
+     * as the current node needs, so depth limited searches play the same
+     * moves with or without a table
+     * Entries are keyed by the canonical form of the position, so all
+     * symmetric variants of a position share one entry
+     *
+     * Moves are made and taken back on the one board that is passed in,
+     * so a node allocates nothing and the board is unchanged on return
+     * The best slot of a node only goes into the table, the root keeps
+     * track of its own best slot
+     *
      * @param board
-     * The Board to check for the best move
+     * The BitBoard to check for the best move
      *
      * @param player
      * The Piece enum that the AI should associate with
@@ -71,34 +609,123 @@ public class AlphaBeta {
      * @param depth
      * How far ahead the AI should look before picking a slot
      *
+     * @param ply
+     * How many moves the board is from the root of the search
+     *
+     * @param search
+     * The SearchContext of the current search
+     *
      * @return
-     * Returns an int array of size two where the int stored at index 0 is
-     * the best slot to play and the int stored at index 1 is the best
-     * scoring board found out of all combinations
+     * Returns the best score found out of all combinations
+     * Returns 0 if the search was stopped before it finished
      */
-    private static int[] alphabeta(Board board, Board.Piece player, int alpha, int beta, int depth) {
-        if(depth-- < 0 || board.isGameOver())
-            return new int[]{-1, score(board, player)};
+    static int alphabeta(BitBoard board, Board.Piece player, int alpha, int beta, int depth, int ply, SearchContext search) {
+        final SearchStats stats = search.getStats();
+        stats.nodes++;
+        if(ply > stats.maxDepth)
+            stats.maxDepth = ply;
+
+        if(depth-- < 0 || board.isGameOver()) {
+            stats.terminalNodes++;
+            return score(board, player);
+        }
 
+        if(search.isStopped())
+            return 0;
+
+        final TranspositionTable table = search.getTable();
+        final boolean maximizing = board.getTurn() == player;
+        final int plies = Math.min(depth, Long.bitCount(board.getOpenSlots()) - 2) + 2;
+        final int symmetry = table == null ? Symmetry.IDENTITY : board.getSymmetry();
+        int hashSlot = -1;
+        if(table != null) {
+            final int entry = table.probe(board.getKey(symmetry));
+            stats.tableProbes++;
+            hashSlot = fromCanonical(board, symmetry, TranspositionTable.slot(entry));
+            if(TranspositionTable.bound(entry) != TranspositionTable.EMPTY && TranspositionTable.plies(entry) == plies) {
+                final int score = maximizing ? TranspositionTable.score(entry) : -TranspositionTable.score(entry);
+                final int bound = maximizing ? TranspositionTable.bound(entry) : flip(TranspositionTable.bound(entry));
+                if(bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    stats.tableHits++;
+                    return score;
+                }
+            }
+        }
+
+        final int alphaOrig = alpha;
+        final int betaOrig = beta;
         int bestSlot = -1;
-        for(final int slot : board.getAvailableSlots()) {
-            final Board copy = board.createCopy();
-            copy.move(slot);
+        final int count = search.orderMoves(board, ply, board.getOpenSlots(), hashSlot);
+        for(int i = 0; i < count; i++) {
+            final int slot = search.getMove(ply, i);
+            board.move(slot);
+            final int score = alphabeta(board, player, alpha, beta, depth, ply + 1, search);
+            board.unmove(slot);
+            if(search.wasStopped())
+                return 0;
 
-            final int score = alphabeta(copy, player, alpha, beta, depth)[SCORE];
-            if(board.getTurn() == player && score > alpha) {
+            if(maximizing && score > alpha) {
                 alpha = score;
                 bestSlot = slot;
-            }else if(board.getTurn() != player && score < beta) {
+            }else if(!maximizing && score < beta) {
                 beta = score;
                 bestSlot = slot;
             }
 
-            if(alpha >= beta)
+            if(alpha >= beta) {
+                search.onCutoff(board.getTurn(), ply, slot, depth);
+                stats.onCutoff(i);
                 break;
+            }
+        }
+
+        final int score = maximizing ? alpha : beta;
+        if(table != null) {
+            final int bound = score <= alphaOrig ? TranspositionTable.UPPER
+                            : score >= betaOrig ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            final long key = board.getKey(symmetry);
+            final int slot = bestSlot < 0 ? -1 : board.getSymmetries().apply(symmetry, bestSlot);
+            if(maximizing) table.store(key, score, slot, plies, bound);
+            else table.store(key, -score, slot, plies, flip(bound));
         }
 
-        return new int[]{bestSlot, board.getTurn() == player ? alpha : beta};
+        return score;
+    }
+
+    /**
+     * Private helper method to map a slot stored for the canonical form back
+     *
+     * @param board
+     * The BitBoard the slot should be played on
+     *
+     * @param symmetry
+     * The symmetry that turns the position into its canonical form
+     *
+     * @param slot
+     * The slot on the canonical form, or -1 for none
+     *
+     * @return
+     * Returns the slot on the actual position, or -1 for none
+     */
+    private static int fromCanonical(BitBoard board, int symmetry, int slot) {
+        return slot < 0 ? -1 : board.getSymmetries().invert(symmetry, slot);
+    }
+
+    /**
+     * Private helper method to swap the point of view of a bound
+     * A lower bound for one player is an upper bound for the other
+     *
+     * @param bound
+     * The bound type to swap
+     *
+     * @return
+     * Returns LOWER for UPPER, UPPER for LOWER and EXACT for EXACT
+     */
+    private static int flip(int bound) {
+        if(bound == TranspositionTable.LOWER) return TranspositionTable.UPPER;
+        if(bound == TranspositionTable.UPPER) return TranspositionTable.LOWER;
+        return bound;
     }
 
     /**
@@ -106,7 +733,7 @@ public class AlphaBeta {
      * Scoring is only based on win or loss
      *
      * @param board
-     * The Board to check the "score" of
+     * The BitBoard to check the "score" of
      *
      * @param player
      * The Piece enum that the AI should associate with
@@ -115,7 +742,7 @@ public class AlphaBeta {
      * Returns 1 if the player wins and -1 for a loss
      * Returns 0 if there was no winner or game is not finished
      */
-    private static int score(Board board, Board.Piece player) {
+    private static int score(BitBoard board, Board.Piece player) {
         if(board.isGameOver())
             if(board.getWinner() == player) return 1;
             else if(board.getWinner() != null) return -1;
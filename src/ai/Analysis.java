@@ -0,0 +1,166 @@
+package ai;
+
+import game.Board;
+
+import java.util.Arrays;
+
+/**
+ * Class that holds the score and principal variation of every legal move
+ * of a position, as found by AlphaBeta#analyze
+ *
+ * Moves are sorted from best to worst for the player the analysis was
+ * made for, moves with the same score keep the order they were searched in
+ * Scores are 1 for a win, -1 for a loss and 0 for a draw or a position that
+ * is still open at the depth limit, all from the point of view of the player
+ */
+public class Analysis {
+
+    private final Board.Piece player;
+    private final int depth;
+    private final int[] slots;
+    private final int[] scores;
+    private final int[][] lines;
+
+    /**
+     * Default constructor for the Analysis object
+     * Sorts the moves from best to worst
+     *
+     * @param player
+     * The Piece enum the scores are for
+     *
+     * @param depth
+     * How far ahead every move was searched
+     *
+     * @param slots
+     * The legal slots in the order they were searched
+     *
+     * @param scores
+     * The score of every slot, at the same index
+     *
+     * @param lines
+     * The principal variation of every slot, starting with the slot itself
+     */
+    Analysis(Board.Piece player, int depth, int[] slots, int[] scores, int[][] lines) {
+        final Integer[] order = new Integer[slots.length];
+        for(int i = 0; i < order.length; i++)
+            order[i] = i;
+
+        Arrays.sort(order, (a, b) -> Integer.compare(scores[b], scores[a]));
+
+        this.player = player;
+        this.depth = depth;
+        this.slots = new int[slots.length];
+        this.scores = new int[slots.length];
+        this.lines = new int[slots.length][];
+        for(int i = 0; i < order.length; i++) {
+            this.slots[i] = slots[order[i]];
+            this.scores[i] = scores[order[i]];
+            this.lines[i] = lines[order[i]];
+        }
+    }
+
+    /**
+     * Gets the Piece the scores are for
+     *
+     * @return
+     * Returns the Piece enum the analysis was made for
+     */
+    public Board.Piece getPlayer() {
+        return this.player;
+    }
+
+    /**
+     * Gets how far ahead every move was searched
+     *
+     * @return
+     * Returns the depth of the analysis
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Gets the amount of legal moves
+     *
+     * @return
+     * Returns the amount of analysed moves, 0 if the game is over
+     */
+    public int getMoveCount() {
+        return this.slots.length;
+    }
+
+    /**
+     * Gets a move by its rank
+     *
+     * @param i
+     * The rank of the move, 0 for the best move
+     *
+     * @return
+     * Returns the slot of the move
+     */
+    public int getSlot(int i) {
+        return this.slots[i];
+    }
+
+    /**
+     * Gets the score of a move by its rank
+     *
+     * @param i
+     * The rank of the move, 0 for the best move
+     *
+     * @return
+     * Returns the score of the move for the player
+     */
+    public int getScore(int i) {
+        return this.scores[i];
+    }
+
+    /**
+     * Gets the line both sides play after a move by its rank
+     *
+     * @param i
+     * The rank of the move, 0 for the best move
+     *
+     * @return
+     * Returns a copy of the slots played, starting with the move itself and
+     * ending at the end of the game or the depth limit
+     */
+    public int[] getPrincipalVariation(int i) {
+        return this.lines[i].clone();
+    }
+
+    /**
+     * Gets the rank of a slot
+     * Useful to look up the score of a slot, like when drawing hints on the board
+     *
+     * @param slot
+     * The slot to find
+     *
+     * @return
+     * Returns the rank of the slot, or -1 if it is not a legal move
+     */
+    public int indexOf(int slot) {
+        for(int i = 0; i < this.slots.length; i++)
+            if(this.slots[i] == slot)
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * The String representation of the Analysis object
+     *
+     * @return
+     * Returns one line per move with its score and principal variation
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(this.player).append(" depth ").append(this.depth);
+        for(int i = 0; i < this.slots.length; i++)
+            builder.append(System.lineSeparator()).append(this.slots[i]).append(": ")
+                   .append(String.format("%+d", this.scores[i])).append(' ').append(Arrays.toString(this.lines[i]));
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,460 @@
+package ai;
+
+import game.BitBoard;
+import game.Board;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Static class that holds the solved 4x4 game with 4 in a row
+ * Every legal position is solved ahead of time by retrograde analysis and
+ * looked up from a memory mapped file, so perfect play takes one index
+ * calculation per slot instead of a search
+ *
+ * The file starts with a magic number and the amount of positions, then
+ * holds 2 bits for each of the 3^16 base 3 indexes with the value for the
+ * player to move, 0 for an illegal position, 1 for a win, 2 for a draw and
+ * 3 for a loss, and then 4 bits for each index with how many more moves the
+ * game lasts when it is won or lost
+ *
+ * Unlike the 3x3 table the file takes a while to build, so it has to be
+ * built up front by running this class
+ */
+public class EndgameTable {
+
+    private static final String FILE = "data/endgame4x4.bin";
+    private static final int MAGIC = 0x54545434;
+    private static final int SIZE = 4;
+    private static final int SLOTS = SIZE * SIZE;
+    private static final int POSITIONS = 43046721;
+    private static final int HALF = 6561;
+
+    private static final int HEADER = 8;
+    private static final int VALUES = HEADER;
+    private static final int DISTANCES = VALUES + (POSITIONS + 3) / 4;
+    private static final int LENGTH = DISTANCES + (POSITIONS + 1) / 2;
+
+    private static final int ILLEGAL = 0;
+    private static final int WIN = 1;
+    private static final int DRAW = 2;
+    private static final int LOSS = 3;
+
+    private static final int[] POWERS = new int[SLOTS];
+    private static final int[] LINES = new int[2 * SIZE + 2];
+
+    static {
+        POWERS[0] = 1;
+        for(int slot = 1; slot < SLOTS; slot++)
+            POWERS[slot] = POWERS[slot - 1] * 3;
+
+        for(int i = 0; i < SIZE; i++) {
+            for(int j = 0; j < SIZE; j++) {
+                LINES[i] |= 1 << (i * SIZE + j);
+                LINES[SIZE + i] |= 1 << (j * SIZE + i);
+            }
+
+            LINES[2 * SIZE] |= 1 << (i * SIZE + i);
+            LINES[2 * SIZE + 1] |= 1 << (i * SIZE + SIZE - 1 - i);
+        }
+    }
+
+    private static volatile ByteBuffer loaded;
+
+    /**
+     * Gets the best move to be played next with one lookup per open slot
+     * Wins are played as quickly as possible and losses dragged out as long
+     * as possible, with the lowest slot breaking ties
+     *
+     * @param board
+     * The Board to get the best move for
+     *
+     * @return
+     * Returns the best slot to be played for the player to move
+     * Returns -1 if the game is already over
+     *
+     * @throws IllegalArgumentException
+     * Throws if the Board is not a 4 by 4 Board with 4 in a row
+     *
+     * @throws IllegalStateException
+     * Throws if the table has not been built
+     */
+    protected static int getMove(Board board) {
+        if(board.getWidth() != SIZE || board.getHeight() != SIZE || board.getWinLength() != SIZE)
+            throw new IllegalArgumentException("Only the 4 by 4 game is solved");
+
+        return getMove(new BitBoard(board));
+    }
+
+    /**
+     * Gets the best move to be played next with one lookup per open slot
+     *
+     * @param board
+     * The BitBoard to get the best move for, must be 4 by 4 with 4 in a row
+     *
+     * @return
+     * Returns the best slot to be played for the player to move
+     * Returns -1 if the game is already over
+     *
+     * @throws IllegalStateException
+     * Throws if the table has not been built
+     */
+    protected static int getMove(BitBoard board) {
+        if(board.isGameOver())
+            return -1;
+
+        final ByteBuffer table = getTable();
+        final int index = board.getIndex();
+        final int piece = board.getTurn() == Board.Piece.X ? 1 : 2;
+
+        int bestSlot = -1;
+        int bestRank = Integer.MIN_VALUE;
+        for(long open = board.getOpenSlots(); open != 0; open &= open - 1) {
+            final int slot = Long.numberOfTrailingZeros(open);
+            final int child = index + POWERS[slot] * piece;
+            final int value = getValue(table, child);
+            final int distance = getDistance(table, child);
+
+            // A loss for the opponent is best, the sooner the better
+            final int rank = value == LOSS ? 2 * SLOTS - distance : value == DRAW ? 0 : distance - 2 * SLOTS;
+            if(rank > bestRank) {
+                bestRank = rank;
+                bestSlot = slot;
+            }
+        }
+
+        return bestSlot;
+    }
+
+    /**
+     * Gets the game theoretic value of a position
+     *
+     * @param board
+     * The BitBoard to get the value of, must be 4 by 4 with 4 in a row
+     *
+     * @return
+     * Returns 1 if the player to move wins with perfect play,
+     * -1 if they lose and 0 if the game is a draw
+     *
+     * @throws IllegalStateException
+     * Throws if the table has not been built
+     */
+    protected static int getValue(BitBoard board) {
+        final int value = getValue(getTable(), board.getIndex());
+        return value == WIN ? 1 : value == LOSS ? -1 : 0;
+    }
+
+    /**
+     * Gets how long a won or lost position lasts with perfect play
+     *
+     * @param board
+     * The BitBoard to get the distance of, must be 4 by 4 with 4 in a row
+     *
+     * @return
+     * Returns how many more moves are played until the game is won,
+     * or 0 if the game is a draw
+     *
+     * @throws IllegalStateException
+     * Throws if the table has not been built
+     */
+    protected static int getDistance(BitBoard board) {
+        return getDistance(getTable(), board.getIndex());
+    }
+
+    /**
+     * Private helper method to get the mapped table
+     * The table is mapped the first time it is needed, and looked for again
+     * on every call until it exists, so a table built while the game is
+     * running is picked up
+     *
+     * @return
+     * Returns a read only view of the table
+     *
+     * @throws IllegalStateException
+     * Throws if the table has not been built
+     */
+    private static ByteBuffer getTable() {
+        ByteBuffer mapped = loaded;
+        if(mapped == null) {
+            synchronized(EndgameTable.class) {
+                mapped = loaded;
+                if(mapped == null)
+                    loaded = mapped = load(new File(FILE));
+            }
+        }
+
+        if(mapped == null)
+            throw new IllegalStateException("No endgame table at " + FILE + ", build it by running ai.EndgameTable");
+
+        return mapped;
+    }
+
+    /**
+     * Private helper method to read the 2 bit value of an index
+     *
+     * @param table
+     * The table to read from
+     *
+     * @param index
+     * The base 3 index of the position
+     *
+     * @return
+     * Returns ILLEGAL, WIN, DRAW or LOSS
+     */
+    private static int getValue(ByteBuffer table, int index) {
+        return (table.get(VALUES + (index >> 2)) >> ((index & 3) * 2)) & 0b11;
+    }
+
+    /**
+     * Private helper method to read the 4 bit distance of an index
+     *
+     * @param table
+     * The table to read from
+     *
+     * @param index
+     * The base 3 index of the position
+     *
+     * @return
+     * Returns how many more moves the game lasts, or 0 for a draw
+     */
+    private static int getDistance(ByteBuffer table, int index) {
+        return (table.get(DISTANCES + (index >> 1)) >> ((index & 1) * 4)) & 0xF;
+    }
+
+    /**
+     * Private helper method that maps the table file into memory
+     *
+     * @param file
+     * The file the table is stored in
+     *
+     * @return
+     * Returns a read only view of the table, or null if there is no valid file
+     */
+    private static ByteBuffer load(File file) {
+        if(!file.isFile() || file.length() != LENGTH)
+            return null;
+
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if(raf.readInt() != MAGIC || raf.readInt() != POSITIONS)
+                return null;
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }catch(IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Solves every legal position, most pieces first
+     * A position only depends on positions with one more piece, so all
+     * positions with the same amount of pieces are solved at the same time,
+     * split over several threads
+     *
+     * @param threads
+     * How many threads to solve with
+     *
+     * @return
+     * Returns the value of every index in bits 0-1 and its distance in bits 2-6
+     */
+    private static byte[] solve(int threads) {
+        final byte[] cells = new byte[POSITIONS];
+        final short[] xHalves = new short[HALF];
+        final short[] oHalves = new short[HALF];
+        for(int half = 0; half < HALF; half++) {
+            for(int slot = 0, rest = half; slot < SLOTS / 2; slot++, rest /= 3) {
+                if(rest % 3 == 1) xHalves[half] |= 1 << slot;
+                if(rest % 3 == 2) oHalves[half] |= 1 << slot;
+            }
+        }
+
+        final ExecutorService service = Executors.newFixedThreadPool(threads);
+        try {
+            final int chunk = (POSITIONS + threads - 1) / threads;
+            for(int pieces = SLOTS; pieces >= 0; pieces--) {
+                final List<Callable<Void>> tasks = new ArrayList<>();
+                for(int start = 0; start < POSITIONS; start += chunk) {
+                    final int from = start;
+                    final int to = Math.min(POSITIONS, start + chunk);
+                    final int count = pieces;
+                    tasks.add(() -> {
+                        solve(cells, xHalves, oHalves, count, from, to);
+                        return null;
+                    });
+                }
+
+                for(Future<Void> task : service.invokeAll(tasks))
+                    task.get();
+            }
+        }catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Solving was interrupted", e);
+        }catch(ExecutionException e) {
+            throw new IllegalStateException("Solving failed", e.getCause());
+        }finally {
+            service.shutdownNow();
+        }
+
+        return cells;
+    }
+
+    /**
+     * Private helper method that solves a range of indexes with a certain amount of pieces
+     * Every position with one more piece must already be solved
+     *
+     * @param cells
+     * The values and distances indexed by base 3 index
+     *
+     * @param xHalves
+     * The X mask of the 8 slots described by every base 3 index below 3^8
+     *
+     * @param oHalves
+     * The O mask of the 8 slots described by every base 3 index below 3^8
+     *
+     * @param pieces
+     * The amount of pieces of the positions to solve
+     *
+     * @param from
+     * The first index of the range
+     *
+     * @param to
+     * The index after the last index of the range
+     */
+    private static void solve(byte[] cells, short[] xHalves, short[] oHalves, int pieces, int from, int to) {
+        for(int index = from; index < to; index++) {
+            final int low = index % HALF;
+            final int high = index / HALF;
+            final int x = xHalves[low] | xHalves[high] << (SLOTS / 2);
+            final int o = oHalves[low] | oHalves[high] << (SLOTS / 2);
+            final int xCount = Integer.bitCount(x);
+            final int oCount = Integer.bitCount(o);
+            if(xCount + oCount != pieces || (xCount != oCount && xCount != oCount + 1))
+                continue;
+
+            final boolean xToMove = xCount == oCount;
+            final int last = xToMove ? o : x;
+            if(hasLine(xToMove ? x : o))
+                continue;
+
+            if(hasLine(last)) {
+                cells[index] = LOSS;
+                continue;
+            }
+
+            if(pieces == SLOTS) {
+                cells[index] = DRAW;
+                continue;
+            }
+
+            // The best reply leaves the opponent lost, or at least drawn
+            final int piece = xToMove ? 1 : 2;
+            int win = Integer.MAX_VALUE;
+            int loss = 0;
+            boolean draw = false;
+            for(int open = ~(x | o) & ((1 << SLOTS) - 1); open != 0; open &= open - 1) {
+                final int child = cells[index + POWERS[Integer.numberOfTrailingZeros(open)] * piece];
+                final int distance = (child >> 2) + 1;
+                if((child & 0b11) == LOSS) win = Math.min(win, distance);
+                else if((child & 0b11) == DRAW) draw = true;
+                else loss = Math.max(loss, distance);
+            }
+
+            if(win != Integer.MAX_VALUE) cells[index] = (byte)(WIN | win << 2);
+            else if(draw) cells[index] = DRAW;
+            else cells[index] = (byte)(LOSS | loss << 2);
+        }
+    }
+
+    /**
+     * Private helper method to check a player's pieces for a line
+     *
+     * @param mask
+     * The slots owned by the player
+     *
+     * @return
+     * Returns true if the pieces fill a whole row, column or diagonal
+     */
+    private static boolean hasLine(int mask) {
+        for(int line : LINES)
+            if((mask & line) == line)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Private helper method that packs the solved cells and writes them to disk
+     * The table is written to a temporary file first so readers never see half a table
+     *
+     * @param file
+     * The file the table should be stored in
+     *
+     * @param cells
+     * The values and distances indexed by base 3 index
+     *
+     * @throws IOException
+     * Throws if the file could not be written
+     *
+     * @throws IllegalStateException
+     * Throws if a distance does not fit in 4 bits
+     */
+    private static void write(File file, byte[] cells) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if(!parent.isDirectory() && !parent.mkdirs())
+            throw new IOException("Unable to create " + parent);
+
+        final byte[] bytes = new byte[LENGTH];
+        ByteBuffer.wrap(bytes).putInt(MAGIC).putInt(POSITIONS);
+        for(int index = 0; index < POSITIONS; index++) {
+            final int value = cells[index] & 0b11;
+            final int distance = value == DRAW ? 0 : cells[index] >> 2;
+            if(distance > 0xF)
+                throw new IllegalStateException("Distance " + distance + " does not fit at index " + index);
+
+            bytes[VALUES + (index >> 2)] |= value << ((index & 3) * 2);
+            bytes[DISTANCES + (index >> 1)] |= distance << ((index & 1) * 4);
+        }
+
+        final File tmp = File.createTempFile("endgame", ".tmp", parent);
+        Files.write(tmp.toPath(), bytes);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Solves the 4x4 game and writes the table to disk
+     *
+     * @param args
+     * An optional path to write the table to and an optional amount of threads
+     *
+     * @throws IOException
+     * Throws if the file could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        final File file = new File(args.length > 0 ? args[0] : FILE);
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        final long start = System.nanoTime();
+        final byte[] cells = solve(threads);
+        write(file, cells);
+
+        int legal = 0;
+        for(byte cell : cells)
+            if((cell & 0b11) != ILLEGAL)
+                legal++;
+
+        System.out.printf("Solved %d legal positions in %.1fs, the empty board is a %s%n", legal,
+                          (System.nanoTime() - start) / 1e9, new String[]{"?", "win", "draw", "loss"}[cells[0] & 0b11]);
+        System.out.println("Wrote " + LENGTH + " bytes to " + file);
+    }
+}
@@ -0,0 +1,104 @@
+package ai;
+
+import game.BitBoard;
+import game.Board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Static class for the AlphaBeta algorithm run by several threads at once
+ * Every thread runs the same timed AlphaBeta search from the root, and the
+ * threads only talk to each other through the shared TranspositionTable
+ *
+ * Helper threads order their moves with a little noise and start at
+ * different depths, so they search different parts of the tree first and
+ * fill the table with results the main thread can pick up later
+ * Only the main thread's move is played
+ */
+public class LazySMP {
+
+    private static final ExecutorService HELPERS = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "LazySMP-Helper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Gets the best move that can be found within a time budget using several threads
+     *
+     * @see AlphaBeta#getTimedMove(Board, Board.Piece, long, TranspositionTable)
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param millis
+     * How many milliseconds the search may take
+     *
+     * @param threads
+     * How many threads the search may use, including the calling thread
+     *
+     * @param table
+     * The TranspositionTable the threads share, must not be null
+     *
+     * @return
+     * Returns the best slot to be played
+     */
+    protected static int getMove(Board board, Board.Piece player, long millis, int threads, TranspositionTable table) {
+        if(threads < 1)
+            throw new IllegalArgumentException("At least one thread is needed");
+        if(table == null)
+            throw new IllegalArgumentException("The threads need a table to share");
+
+        final BitBoard root = new BitBoard(board);
+        if(root.isGameOver())
+            return -1;
+
+        final long deadline = System.nanoTime() + Math.max(0, millis) * 1_000_000;
+        final int slots = board.getWidth() * board.getHeight();
+        final AtomicBoolean abort = new AtomicBoolean();
+
+        final List<Future<?>> helpers = new ArrayList<>();
+        for(int i = 1; i < threads; i++) {
+            // Every thread makes and takes back moves on its own board
+            final BitBoard copy = root.createCopy();
+            final SearchContext search = new SearchContext(table, true, deadline, slots, abort, i, new SearchStats());
+            final int startDepth = i % 2;
+            helpers.add(HELPERS.submit(() -> AlphaBeta.iterate(copy, player, startDepth, search)));
+        }
+
+        try {
+            final SearchContext search = new SearchContext(table, true, deadline, slots);
+            return AlphaBeta.iterate(root, player, 0, search);
+        }finally {
+            // The helpers are only useful while the main thread is searching
+            abort.set(true);
+            for(Future<?> helper : helpers)
+                await(helper);
+        }
+    }
+
+    /**
+     * Private helper method that waits for a helper thread to stop
+     *
+     * @param helper
+     * The Future of the helper thread
+     */
+    private static void await(Future<?> helper) {
+        try {
+            helper.get();
+        }catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }catch(ExecutionException e) {
+            throw new IllegalStateException("Helper search failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package ai;
+
+import game.BitBoard;
+import game.Board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class for the Monte Carlo Tree Search algorithm with UCT
+ * Instead of searching every move, the search plays random games from the
+ * current position and grows a tree towards the moves that win most often,
+ * so it works on boards far too large for AlphaBeta and can be stopped at
+ * any time
+ *
+ * The tree is stored in primitive arrays indexed by node, and the children
+ * of a node always sit next to each other
+ * The tree is kept between searches, so when the next position follows from
+ * the last one the search continues from the matching node, after moving
+ * that part of the tree to the front of the arrays to make room again
+ *
+ * Several threads can grow the same tree: the tree itself is changed under
+ * one lock while the random games, which take almost all of the time, run
+ * outside of it
+ * Every node a thread passes counts as a lost visit until its game is done,
+ * which steers the other threads towards different parts of the tree
+ */
+public class MCTS {
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+    private static final int MIN_CAPACITY = 65;
+
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "MCTS-Worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int[] moves;
+    private final int[] children;
+    private final int[] counts;
+    private final int[] visits;
+    private final int[] scores;
+    private final Object lock;
+
+    private int size;
+    private int root;
+    private BitBoard rootBoard;
+    private long budget;
+    private long seed;
+
+    /**
+     * Default constructor for the MCTS object
+     *
+     * @param capacity
+     * The most nodes the tree can hold, every node takes 20 bytes
+     *
+     * @throws IllegalArgumentException
+     * Throws if the capacity is too small to hold the children of any position
+     */
+    public MCTS(int capacity) {
+        if(capacity < MIN_CAPACITY)
+            throw new IllegalArgumentException("Capacity must be at least " + MIN_CAPACITY);
+
+        this.moves = new int[capacity];
+        this.children = new int[capacity];
+        this.counts = new int[capacity];
+        this.visits = new int[capacity];
+        this.scores = new int[capacity];
+        this.lock = new Object();
+        this.seed = System.nanoTime();
+        clear();
+    }
+
+    /**
+     * Gets the best move found within a time or playout budget
+     * The search stops as soon as either budget runs out
+     *
+     * @param board
+     * The Board to find the best move for the player to move on
+     *
+     * @param millis
+     * How many milliseconds the search may take, or Long.MAX_VALUE for no limit
+     *
+     * @param playouts
+     * How many random games the search may play, or Long.MAX_VALUE for no limit
+     *
+     * @param threads
+     * How many threads the search may use, including the calling thread
+     *
+     * @return
+     * Returns the slot that was visited most, or -1 if the game is over
+     *
+     * @throws IllegalArgumentException
+     * Throws if there are no threads or both budgets are unlimited
+     */
+    public synchronized int getMove(Board board, long millis, long playouts, int threads) {
+        if(threads < 1)
+            throw new IllegalArgumentException("At least one thread is needed");
+        if(millis == Long.MAX_VALUE && playouts == Long.MAX_VALUE)
+            throw new IllegalArgumentException("The search needs a time or playout budget");
+
+        final BitBoard position = new BitBoard(board);
+        if(position.isGameOver())
+            return -1;
+
+        moveRoot(position);
+        if(this.counts[this.root] == 0 && !expand(this.root, position)) {
+            clear();
+            this.rootBoard = position.createCopy();
+            expand(this.root, position);
+        }
+
+        final long now = System.nanoTime();
+        final long deadline = millis >= (Long.MAX_VALUE - now) / 1_000_000 ? Long.MAX_VALUE : now + Math.max(0, millis) * 1_000_000;
+        this.budget = Math.max(0, playouts);
+
+        final SplittableRandom random = new SplittableRandom(this.seed++);
+        final List<Future<?>> workers = new ArrayList<>();
+        for(int i = 1; i < threads; i++) {
+            // Every thread makes and takes back moves on its own board
+            final BitBoard copy = position.createCopy();
+            final SplittableRandom split = random.split();
+            workers.add(WORKERS.submit(() -> search(copy, deadline, split)));
+        }
+
+        try {
+            search(position, deadline, random);
+        }finally {
+            synchronized(this.lock) {
+                this.budget = 0;
+            }
+
+            for(Future<?> worker : workers)
+                await(worker);
+        }
+
+        return getBestMove();
+    }
+
+    /**
+     * Throws the whole tree away
+     */
+    public synchronized void clear() {
+        this.size = 1;
+        this.root = 0;
+        this.rootBoard = null;
+        this.moves[0] = -1;
+        this.counts[0] = 0;
+        this.visits[0] = 0;
+        this.scores[0] = 0;
+    }
+
+    /**
+     * Gets the amount of nodes in the tree, including those no longer
+     * reachable from the current root
+     *
+     * @return
+     * Returns the amount of nodes in use
+     */
+    public synchronized int getNodeCount() {
+        return this.size;
+    }
+
+    /**
+     * Gets how often the current root was visited, which includes the
+     * visits of earlier searches when the tree was reused
+     *
+     * @return
+     * Returns the visits of the root node
+     */
+    public synchronized int getRootVisits() {
+        return this.visits[this.root];
+    }
+
+    /**
+     * Private helper method that plays random games until the budget runs out
+     * Run by every thread of the search
+     *
+     * @param board
+     * The BitBoard in the root position, owned by the calling thread
+     *
+     * @param deadline
+     * The System#nanoTime() after which the search should stop
+     *
+     * @param random
+     * The random generator of the calling thread
+     */
+    private void search(BitBoard board, long deadline, SplittableRandom random) {
+        final int slots = board.getWidth() * board.getHeight();
+        final int[] path = new int[slots + 1];
+        final int[] played = new int[slots];
+        final Board.Piece rootTurn = board.getTurn();
+
+        while(true) {
+            int length = 0;
+            int made = 0;
+            synchronized(this.lock) {
+                if(this.budget <= 0 || System.nanoTime() >= deadline)
+                    return;
+
+                this.budget--;
+                int node = this.root;
+                this.visits[node]++;
+                path[length++] = node;
+                while(true) {
+                    if(this.counts[node] == 0) {
+                        // A leaf grows children on its second visit, if there is room
+                        if(this.visits[node] < 2 || board.isGameOver() || !expand(node, board))
+                            break;
+                    }
+
+                    node = select(node);
+                    board.move(this.moves[node]);
+                    played[made++] = this.moves[node];
+                    this.visits[node]++;
+                    path[length++] = node;
+                    if(board.isGameOver() || this.visits[node] == 1)
+                        break;
+                }
+            }
+
+            while(!board.isGameOver()) {
+                final int slot = randomSlot(board.getOpenSlots(), random);
+                board.move(slot);
+                played[made++] = slot;
+            }
+
+            final Board.Piece winner = board.getWinner();
+            synchronized(this.lock) {
+                // Visits were already counted on the way down, only the result is added
+                for(int i = 1; i < length; i++) {
+                    final Board.Piece mover = i % 2 == 1 ? rootTurn : rootTurn == Board.Piece.X ? Board.Piece.O : Board.Piece.X;
+                    this.scores[path[i]] += winner == null ? DRAW : winner == mover ? WIN : 0;
+                }
+            }
+
+            while(made > 0)
+                board.unmove(played[--made]);
+        }
+    }
+
+    /**
+     * Private helper method that picks the child with the highest UCT value
+     * Children that were never visited are picked first
+     * Must be called while holding the lock
+     *
+     * @param node
+     * The node to pick a child of
+     *
+     * @return
+     * Returns the index of the child
+     */
+    private int select(int node) {
+        final int first = this.children[node];
+        final double log = Math.log(this.visits[node]);
+
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for(int child = first; child < first + this.counts[node]; child++) {
+            final int n = this.visits[child];
+            if(n == 0)
+                return child;
+
+            final double value = this.scores[child] / (double)(WIN * n) + EXPLORATION * Math.sqrt(log / n);
+            if(value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Private helper method that adds a child for every open slot of a node
+     * Must be called while holding the lock
+     *
+     * @param node
+     * The node to expand
+     *
+     * @param board
+     * The position of the node
+     *
+     * @return
+     * Returns true if the children were added, false if the tree is full
+     */
+    private boolean expand(int node, BitBoard board) {
+        final long open = board.getOpenSlots();
+        final int count = Long.bitCount(open);
+        if(this.size + count > this.moves.length)
+            return false;
+
+        this.children[node] = this.size;
+        for(long slots = open; slots != 0; slots &= slots - 1) {
+            final int child = this.size++;
+            this.moves[child] = Long.numberOfTrailingZeros(slots);
+            this.counts[child] = 0;
+            this.visits[child] = 0;
+            this.scores[child] = 0;
+        }
+
+        this.counts[node] = count;
+        return true;
+    }
+
+    /**
+     * Private helper method that moves the root of the tree to a position
+     * The old tree is kept when the position follows from the old root by at
+     * most two moves, else it starts over
+     *
+     * @param position
+     * The position to search from
+     */
+    private void moveRoot(BitBoard position) {
+        final int node = this.rootBoard == null ? -1 : find(position);
+        if(node < 0) {
+            clear();
+        }else if(node != this.root) {
+            compact(node);
+        }
+
+        this.rootBoard = position.createCopy();
+    }
+
+    /**
+     * Private helper method that keeps only the nodes below a new root
+     * Children are always added after their parent, so sliding the kept
+     * nodes down in order never overwrites a node that still has to move,
+     * and the new root ends up at index 0
+     *
+     * @param node
+     * The node that becomes the new root
+     */
+    private void compact(int node) {
+        final int[] remap = new int[this.size];
+        Arrays.fill(remap, -1);
+
+        // Mark everything below the new root, every node is queued only once
+        final int[] queue = new int[this.size];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = node;
+        remap[node] = 0;
+        while(head < tail) {
+            final int next = queue[head++];
+            for(int child = this.children[next]; child < this.children[next] + this.counts[next]; child++) {
+                remap[child] = 0;
+                queue[tail++] = child;
+            }
+        }
+
+        int size = 0;
+        for(int old = 0; old < this.size; old++)
+            if(remap[old] == 0)
+                remap[old] = size++;
+
+        for(int old = node; old < this.size; old++) {
+            if(remap[old] < 0)
+                continue;
+
+            final int index = remap[old];
+            this.moves[index] = this.moves[old];
+            this.counts[index] = this.counts[old];
+            this.visits[index] = this.visits[old];
+            this.scores[index] = this.scores[old];
+            this.children[index] = this.counts[old] == 0 ? 0 : remap[this.children[old]];
+        }
+
+        this.root = 0;
+        this.size = size;
+    }
+
+    /**
+     * Private helper method that finds the node of a position below the root
+     *
+     * @param position
+     * The position to look for
+     *
+     * @return
+     * Returns the node of the position, or -1 if it is not in the tree
+     */
+    private int find(BitBoard position) {
+        final BitBoard last = this.rootBoard;
+        if(position.getWidth() != last.getWidth() || position.getHeight() != last.getHeight()
+                || position.getWinLength() != last.getWinLength())
+            return -1;
+
+        final Board.Piece first = last.getTurn();
+        final Board.Piece second = first == Board.Piece.X ? Board.Piece.O : Board.Piece.X;
+        final long firstAdded = position.getMask(first) & ~last.getMask(first);
+        final long secondAdded = position.getMask(second) & ~last.getMask(second);
+        if((last.getMask(first) & ~position.getMask(first)) != 0 || (last.getMask(second) & ~position.getMask(second)) != 0
+                || Long.bitCount(firstAdded) > 1 || Long.bitCount(secondAdded) > Long.bitCount(firstAdded))
+            return -1;
+
+        int node = this.root;
+        if(firstAdded != 0)
+            node = getChild(node, Long.numberOfTrailingZeros(firstAdded));
+        if(secondAdded != 0 && node >= 0)
+            node = getChild(node, Long.numberOfTrailingZeros(secondAdded));
+
+        return node;
+    }
+
+    /**
+     * Private helper method that finds the child of a node reached by a slot
+     *
+     * @param node
+     * The node to look in
+     *
+     * @param slot
+     * The slot played
+     *
+     * @return
+     * Returns the child, or -1 if the node has no children
+     */
+    private int getChild(int node, int slot) {
+        final int first = this.children[node];
+        for(int child = first; child < first + this.counts[node]; child++)
+            if(this.moves[child] == slot)
+                return child;
+
+        return -1;
+    }
+
+    /**
+     * Private helper method that picks the move to play after a search
+     *
+     * @return
+     * Returns the slot of the root child that was visited most, with the
+     * best average result breaking ties
+     */
+    private int getBestMove() {
+        final int first = this.children[this.root];
+        int best = first;
+        for(int child = first + 1; child < first + this.counts[this.root]; child++) {
+            if(this.visits[child] > this.visits[best]
+                    || (this.visits[child] == this.visits[best] && (long)this.scores[child] * this.visits[best] > (long)this.scores[best] * this.visits[child]))
+                best = child;
+        }
+
+        return this.moves[best];
+    }
+
+    /**
+     * Private helper method that picks a random slot from a mask
+     *
+     * @param open
+     * The mask of open slots, must not be empty
+     *
+     * @param random
+     * The random generator to pick with
+     *
+     * @return
+     * Returns one of the slots in the mask
+     */
+    private static int randomSlot(long open, SplittableRandom random) {
+        for(int n = random.nextInt(Long.bitCount(open)); n > 0; n--)
+            open &= open - 1;
+
+        return Long.numberOfTrailingZeros(open);
+    }
+
+    /**
+     * Private helper method that waits for a worker thread to stop
+     *
+     * @param worker
+     * The Future of the worker thread
+     */
+    private static void await(Future<?> worker) {
+        try {
+            worker.get();
+        }catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }catch(ExecutionException e) {
+            throw new IllegalStateException("Worker search failed", e.getCause());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package ai;
 
+import game.BitBoard;
 import game.Board;
+import game.Symmetry;
 
 /**
  * Static class for the MiniMax algorithm
@@ -8,9 +10,6 @@ import game.Board;
  */
 public class MiniMax {
 
-    private static final int SLOT = 0;
-    private static final int SCORE = 1;
-
     /**
      * Gets the best move to be played next
      * Searches 60,000 combinations for the best move
@@ -25,7 +24,7 @@ public class MiniMax {
      * Returns the best slot to be played
      */
     protected static int getMove(Board board, Board.Piece player) {
-        return minimax(board, player, Integer.MAX_VALUE)[SLOT];
+        return getMove(board, player, Integer.MAX_VALUE, null);
     }
 
     /**
@@ -45,7 +44,81 @@ public class MiniMax {
      * Returns the best slot to be played
      */
     protected static int getMove(Board board, Board.Piece player, int depth) {
-        return minimax(board, player, depth)[SLOT];
+        return getMove(board, player, depth, null);
+    }
+
+    /**
+     * Gets the best move to be played next
+     * Positions that were already searched are read from the table instead
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look before picking a slot
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @return
+     * Returns the best slot to be played
+     */
+    protected static int getMove(Board board, Board.Piece player, int depth, TranspositionTable table) {
+        return getMove(board, player, depth, table, new SearchStats());
+    }
+
+    /**
+     * Gets the best move to be played next and records how much work it took
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look before picking a slot
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @param stats
+     * The SearchStats to clear and fill in
+     *
+     * @return
+     * Returns the best slot to be played
+     */
+    protected static int getMove(Board board, Board.Piece player, int depth, TranspositionTable table, SearchStats stats) {
+        stats.start();
+        try {
+            final BitBoard root = new BitBoard(board);
+            if(depth < 0 || root.isGameOver())
+                return -1;
+
+            // The root is searched here instead of read from the table so that ties
+            // are always broken towards the lowest slot of this exact position
+            final boolean turn = root.getTurn() == player;
+            int bestSlot = -1;
+            int bestScore = turn ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            stats.nodes++;
+            for(long open = root.getOpenSlots(); open != 0; open &= open - 1) {
+                final int slot = Long.numberOfTrailingZeros(open);
+                root.move(slot);
+                final int score = minimax(root, player, depth - 1, 1, table, stats);
+                root.unmove(slot);
+                if((turn && score > bestScore) || (!turn && score < bestScore)) {
+                    bestScore = score;
+                    bestSlot = slot;
+                }
+            }
+
+            return bestSlot;
+        }finally {
+            stats.stop();
+        }
     }
 
     /**
@@ -53,8 +126,15 @@ public class MiniMax {
      * Heavily uses recursion to trace all possible plays
      * Recommended to learn what minimax is before trying to understand the method
      *
+     * Only exact table entries searched exactly as many plies as the current
+     * node needs are used, so the result is the same with or without a table
+     * Entries are keyed by the canonical form of the position
+     *
+     * Moves are made and taken back on the one board that is passed in,
+     * so a node allocates nothing and the board is unchanged on return
+     *
      * @param board
-     * The Board to check for the best move
+     * The BitBoard to check for the best move
      *
      * @param player
      * The Piece enum that the AI should associate with
@@ -62,30 +142,59 @@ public class MiniMax {
      * @param depth
      * How far ahead the AI should look before picking a slot
      *
+     * @param ply
+     * How many moves the board is from the root of the search
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @param stats
+     * The SearchStats to count the work in
+     *
      * @return
-     * Returns an int array of size two where the int stored at index 0 is
-     * the best slot to play and the int stored at index 1 is the best
-     * scoring board found out of all combinations
+     * Returns the best score found out of all combinations
      */
-    private static int[] minimax(Board board, Board.Piece player, int depth) {
-        if(depth-- < 0 || board.isGameOver())
-            return new int[]{-1, score(board, player)};
+    private static int minimax(BitBoard board, Board.Piece player, int depth, int ply, TranspositionTable table, SearchStats stats) {
+        stats.nodes++;
+        if(ply > stats.maxDepth)
+            stats.maxDepth = ply;
 
-        int bestSlot = -1;
-        int bestScore = board.getTurn() == player ? Integer.MIN_VALUE : Integer.MAX_VALUE;
-        for(final int slot : board.getAvailableSlots()) {
-            final Board copy = board.createCopy();
-            copy.move(slot);
+        if(depth-- < 0 || board.isGameOver()) {
+            stats.terminalNodes++;
+            return score(board, player);
+        }
 
-            final boolean turn = board.getTurn() == player;
-            final int score = minimax(copy, player, depth)[SCORE];
+        final boolean turn = board.getTurn() == player;
+        final int plies = Math.min(depth, Long.bitCount(board.getOpenSlots()) - 2) + 2;
+        final int symmetry = table == null ? Symmetry.IDENTITY : board.getSymmetry();
+        if(table != null) {
+            final int entry = table.probe(board.getKey(symmetry));
+            stats.tableProbes++;
+            if(TranspositionTable.bound(entry) == TranspositionTable.EXACT && TranspositionTable.plies(entry) == plies) {
+                stats.tableHits++;
+                return turn ? TranspositionTable.score(entry) : -TranspositionTable.score(entry);
+            }
+        }
+
+        int bestSlot = -1;
+        int bestScore = turn ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for(long open = board.getOpenSlots(); open != 0; open &= open - 1) {
+            final int slot = Long.numberOfTrailingZeros(open);
+            board.move(slot);
+            final int score = minimax(board, player, depth, ply + 1, table, stats);
+            board.unmove(slot);
             if((turn && score > bestScore) || (!turn && score < bestScore)) {
                 bestScore = score;
                 bestSlot = slot;
             }
         }
 
-        return new int[]{bestSlot, bestScore};
+        if(table != null) {
+            final int slot = bestSlot < 0 ? -1 : board.getSymmetries().apply(symmetry, bestSlot);
+            table.store(board.getKey(symmetry), turn ? bestScore : -bestScore, slot, plies, TranspositionTable.EXACT);
+        }
+
+        return bestScore;
     }
 
     /**
@@ -93,7 +202,7 @@ public class MiniMax {
      * Scoring is only based on win or loss
      *
      * @param board
-     * The Board to check the "score" of
+     * The BitBoard to check the "score" of
      *
      * @param player
      * The Piece enum that the AI should associate with
@@ -102,7 +211,7 @@ public class MiniMax {
      * Returns 1 if the player wins and -1 for a loss
      * Returns 0 if there was no winner or game is not finished
      */
-    private static int score(Board board, Board.Piece player) {
+    private static int score(BitBoard board, Board.Piece player) {
         if(board.isGameOver())
             if(board.getWinner() == player) return 1;
             else if(board.getWinner() != null) return -1;
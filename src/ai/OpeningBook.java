@@ -0,0 +1,438 @@
+package ai;
+
+import game.BitBoard;
+import game.Board;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class that holds the best moves of the first few plies of a board size
+ * The opening positions are the widest and most repeated ones, so they are
+ * searched deeply once ahead of time and looked up from then on
+ *
+ * Positions are stored in their canonical form, so one entry covers all of
+ * its symmetric variants, and the move is mapped back on lookup
+ *
+ * The file starts with a header of the magic number, the board size, the
+ * key of a test position and the amount of entries, followed by the entries
+ * sorted by canonical key, each a long key and a byte slot on the canonical
+ * form, so a lookup is a binary search over the memory mapped file
+ * The test key makes sure the file was built with the same Zobrist keys
+ */
+public class OpeningBook {
+
+    private static final int MAGIC = 0x54544F42;
+    private static final int HEADER = 28;
+    private static final int ENTRY = 9;
+    private static final int MAX_SLOTS = 64;
+    private static final long RECHECK_NANOS = 10_000_000_000L;
+    private static final Map<Integer, OpeningBook> BOOKS = new ConcurrentHashMap<>();
+
+    private final ByteBuffer entries;
+    private final int count;
+    private final long recheck;
+
+    /**
+     * Private constructor for the OpeningBook object
+     *
+     * @param entries
+     * The buffer holding the sorted entries, starting at index 0, or null
+     * if the book is missing
+     *
+     * @param count
+     * The amount of entries
+     *
+     * @param recheck
+     * The System#nanoTime() after which a missing book is looked for again
+     */
+    private OpeningBook(ByteBuffer entries, int count, long recheck) {
+        this.entries = entries;
+        this.count = count;
+        this.recheck = recheck;
+    }
+
+    /**
+     * Gets the book for a board size from the data folder
+     * Every book is loaded once and kept from then on, and a size without
+     * a valid book is remembered as missing and only looked for again every
+     * few seconds, so a book built while the game is running is picked up
+     * without touching the disk on every move
+     *
+     * @param width
+     * The amount of columns on the board
+     *
+     * @param height
+     * The amount of rows on the board
+     *
+     * @param winLength
+     * How many pieces in a row are needed to win
+     *
+     * @return
+     * Returns the OpeningBook, or null if there is no valid book for the size
+     */
+    static OpeningBook find(int width, int height, int winLength) {
+        // Books are only built for boards a BitBoard can hold
+        if((long)width * height > MAX_SLOTS)
+            return null;
+
+        final int key = getKey(width, height, winLength);
+        OpeningBook book = BOOKS.get(key);
+        if(book == null || (book.entries == null && System.nanoTime() - book.recheck > 0)) {
+            book = open(width, height, winLength);
+            BOOKS.put(key, book);
+        }
+
+        return book.entries == null ? null : book;
+    }
+
+    /**
+     * Forgets every loaded and missing book
+     * The next lookup of every board size reads the data folder again
+     */
+    public static void reload() {
+        BOOKS.clear();
+    }
+
+    /**
+     * Gets the book move of a position
+     *
+     * @param board
+     * The BitBoard to get the move for, of the size the book was built for
+     *
+     * @return
+     * Returns the best slot for the player to move, or -1 if the position
+     * is not in the book
+     */
+    int getMove(BitBoard board) {
+        final int symmetry = board.getSymmetry();
+        final long key = board.getKey(symmetry);
+
+        int low = 0;
+        int high = this.count - 1;
+        while(low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long found = this.entries.getLong(mid * ENTRY);
+            if(found < key) {
+                low = mid + 1;
+            }else if(found > key) {
+                high = mid - 1;
+            }else {
+                final int slot = this.entries.get(mid * ENTRY + 8);
+                return board.getSymmetries().invert(symmetry, slot);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets the amount of positions in the book
+     *
+     * @return
+     * Returns the amount of entries
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Maps a book file into memory and checks its header
+     *
+     * @param file
+     * The file the book is stored in
+     *
+     * @param width
+     * The amount of columns the book must be built for
+     *
+     * @param height
+     * The amount of rows the book must be built for
+     *
+     * @param winLength
+     * The win length the book must be built for
+     *
+     * @return
+     * Returns the OpeningBook stored in the file
+     *
+     * @throws IOException
+     * Throws if the file cannot be read or was built for something else
+     */
+    public static OpeningBook load(File file, int width, int height, int winLength) throws IOException {
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC)
+                throw new IOException(file + " is not an opening book");
+
+            if(buffer.getInt(4) != width || buffer.getInt(8) != height || buffer.getInt(12) != winLength)
+                throw new IOException(file + " was built for another board size");
+
+            if(buffer.getLong(16) != getTestKey(width, height, winLength))
+                throw new IOException(file + " was built with other position keys");
+
+            final int count = buffer.getInt(24);
+            if(buffer.capacity() != HEADER + (long)count * ENTRY)
+                throw new IOException(file + " is truncated");
+
+            buffer.position(HEADER);
+            return new OpeningBook(buffer.slice(), count, 0);
+        }
+    }
+
+    /**
+     * Searches every position up to a number of plies and writes the book
+     * Symmetric positions are only searched once, and the positions are
+     * spread over several threads that share one TranspositionTable
+     *
+     * Only positions that are solved within the time budget are written,
+     * so a book move is never worse than a search to the end of the game
+     * and the rest is left to the search during play
+     *
+     * @param width
+     * The amount of columns on the board
+     *
+     * @param height
+     * The amount of rows on the board
+     *
+     * @param winLength
+     * How many pieces in a row are needed to win
+     *
+     * @param plies
+     * The book holds every position with fewer pieces than this
+     *
+     * @param millis
+     * How many milliseconds the AlphaBeta search may take to solve a position
+     *
+     * @param threads
+     * How many positions to search at the same time
+     *
+     * @param file
+     * The file to write the book to
+     *
+     * @return
+     * Returns an int array of size two where the int stored at index 0 is
+     * the amount of positions in the book and the int stored at index 1 is
+     * the amount that were left out because they were not solved in time
+     *
+     * @throws IOException
+     * Throws if the file could not be written
+     */
+    public static int[] build(int width, int height, int winLength, int plies, long millis, int threads, File file) throws IOException {
+        // Collect every distinct position ply by ply, keyed by canonical key
+        final Map<Long, Board> positions = new LinkedHashMap<>();
+        List<Board> frontier = List.of(new Board(width, height, winLength));
+        for(int ply = 0; ply < plies && !frontier.isEmpty(); ply++) {
+            final List<Board> next = new ArrayList<>();
+            for(Board board : frontier) {
+                if(board.isGameOver() || positions.putIfAbsent(board.getCanonicalKey(), board) != null)
+                    continue;
+
+                for(int slot = board.getNextSlot(0); slot >= 0; slot = board.getNextSlot(slot + 1)) {
+                    final Board child = board.createCopy();
+                    child.move(slot);
+                    next.add(child);
+                }
+            }
+
+            frontier = next;
+        }
+
+        final TranspositionTable table = new TranspositionTable(1 << 22, TranspositionTable.Replacement.DEPTH_PREFERRED);
+        final ExecutorService service = Executors.newFixedThreadPool(threads);
+        final long[] keys = new long[positions.size()];
+        final List<Future<Integer>> moves = new ArrayList<>();
+        try {
+            int i = 0;
+            for(Map.Entry<Long, Board> position : positions.entrySet()) {
+                final Board board = position.getValue();
+                keys[i++] = position.getKey();
+                moves.add(service.submit(() -> AlphaBeta.getSolvedMove(board, board.getTurn(), millis, table)));
+            }
+
+            // Positions the search could not solve in time are left out
+            final List<Integer> solved = new ArrayList<>();
+            for(int j = 0; j < keys.length; j++)
+                if(moves.get(j).get() >= 0)
+                    solved.add(j);
+
+            final ByteBuffer buffer = ByteBuffer.allocate(HEADER + solved.size() * ENTRY);
+            buffer.putInt(MAGIC).putInt(width).putInt(height).putInt(winLength)
+                  .putLong(getTestKey(width, height, winLength)).putInt(solved.size());
+
+            // Entries are written sorted by key, carrying their canonical slot along
+            solved.sort((a, b) -> Long.compare(keys[a], keys[b]));
+            final List<Board> boards = new ArrayList<>(positions.values());
+            for(int j : solved) {
+                final BitBoard board = new BitBoard(boards.get(j));
+                final int slot = board.getSymmetries().apply(board.getSymmetry(), moves.get(j).get());
+                buffer.putLong(keys[j]).put((byte)slot);
+            }
+
+            write(file, buffer.array());
+            BOOKS.remove(getKey(width, height, winLength));
+            return new int[]{solved.size(), keys.length - solved.size()};
+        }catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Building the book was interrupted", e);
+        }catch(ExecutionException e) {
+            throw new IllegalStateException("Building the book failed", e.getCause());
+        }finally {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Private helper method that opens the book of a board size
+     *
+     * @param width
+     * The amount of columns on the board
+     *
+     * @param height
+     * The amount of rows on the board
+     *
+     * @param winLength
+     * How many pieces in a row are needed to win
+     *
+     * @return
+     * Returns the OpeningBook in the data folder, or a missing book if there
+     * is no valid one
+     */
+    private static OpeningBook open(int width, int height, int winLength) {
+        final File file = new File(getFileName(width, height, winLength));
+        try {
+            if(file.isFile())
+                return load(file, width, height, winLength);
+        }catch(IOException e) {
+            // A book that cannot be used is treated like a missing one
+        }
+
+        return new OpeningBook(null, 0, System.nanoTime() + RECHECK_NANOS);
+    }
+
+    /**
+     * Private helper method that writes a book to disk
+     * The book is written to a temporary file first so readers never see half a book
+     *
+     * @param file
+     * The file the book should be stored in
+     *
+     * @param bytes
+     * The whole book
+     *
+     * @throws IOException
+     * Throws if the file could not be written
+     */
+    private static void write(File file, byte[] bytes) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if(!parent.isDirectory() && !parent.mkdirs())
+            throw new IOException("Unable to create " + parent);
+
+        final File tmp = File.createTempFile("book", ".tmp", parent);
+        Files.write(tmp.toPath(), bytes);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Private helper method to get the key of a fixed test position
+     *
+     * @param width
+     * The amount of columns on the board
+     *
+     * @param height
+     * The amount of rows on the board
+     *
+     * @param winLength
+     * How many pieces in a row are needed to win
+     *
+     * @return
+     * Returns the key of the position with an X in slot 0
+     */
+    private static long getTestKey(int width, int height, int winLength) {
+        final BitBoard board = new BitBoard(width, height, winLength);
+        board.move(0);
+        return board.getKey(0);
+    }
+
+    /**
+     * Private helper method to get the key a board size is cached under
+     * Every side and the win length are at most 64 on a board with a book
+     *
+     * @param width
+     * The amount of columns on the board
+     *
+     * @param height
+     * The amount of rows on the board
+     *
+     * @param winLength
+     * How many pieces in a row are needed to win
+     *
+     * @return
+     * Returns the size packed into one int
+     */
+    private static int getKey(int width, int height, int winLength) {
+        return width << 16 | height << 8 | winLength;
+    }
+
+    /**
+     * Private helper method to get the default file of a board size
+     *
+     * @param width
+     * The amount of columns on the board
+     *
+     * @param height
+     * The amount of rows on the board
+     *
+     * @param winLength
+     * How many pieces in a row are needed to win
+     *
+     * @return
+     * Returns the path of the book in the data folder
+     */
+    private static String getFileName(int width, int height, int winLength) {
+        return "data/book" + width + "x" + height + "-" + winLength + ".bin";
+    }
+
+    /**
+     * Builds a book from the command line
+     *
+     * @param args
+     * The width, height and win length of the board, and optionally the
+     * amount of plies, the milliseconds per position, the amount of threads
+     * and the file to write to, for example: 5 5 4 3 2000 8
+     *
+     * @throws IOException
+     * Throws if the file could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 3) {
+            System.out.println("Usage: OpeningBook <width> <height> <winLength> [plies] [millis] [threads] [file]");
+            return;
+        }
+
+        final int width = Integer.parseInt(args[0]);
+        final int height = Integer.parseInt(args[1]);
+        final int winLength = Integer.parseInt(args[2]);
+        final int plies = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        final long millis = args.length > 4 ? Long.parseLong(args[4]) : 1000;
+        final int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        final File file = new File(args.length > 6 ? args[6] : getFileName(width, height, winLength));
+
+        final long start = System.nanoTime();
+        final int[] count = build(width, height, winLength, plies, millis, threads, file);
+        System.out.printf("Wrote %d positions to %s in %.1fs, left out %d that were not solved in %dms%n",
+                          count[0], file, (System.nanoTime() - start) / 1e9, count[1], millis);
+    }
+}
@@ -0,0 +1,378 @@
+package ai;
+
+import game.BitBoard;
+import game.Board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Static class for the AlphaBeta algorithm spread over several threads
+ * Uses the Young Brothers Wait idea on a ForkJoinPool: the first move of a
+ * node is searched alone to get a bound, then all of its brothers are
+ * searched in parallel with that bound
+ *
+ * Nodes close to the root are split this way and everything deeper is
+ * handed to the normal sequential AlphaBeta search
+ * Every worker thread keeps one SearchContext for the leaves it searches,
+ * so the history of one leaf orders the moves of the next and no buffers
+ * are allocated per leaf
+ */
+public class ParallelAlphaBeta {
+
+    private static final int SPLIT_PLIES = 3;
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Worker> WORKERS = new ThreadLocal<>();
+    private static final AtomicLong SEARCHES = new AtomicLong();
+
+    /**
+     * The SearchContext a worker thread keeps between the leaves it searches
+     * It is reset once for every search the thread takes part in
+     */
+    private static class Worker {
+
+        private final SearchContext context;
+        private long search;
+
+        /**
+         * Constructor for the Worker object
+         *
+         * @param context
+         * The SearchContext the thread searches its leaves with
+         */
+        private Worker(SearchContext context) {
+            this.context = context;
+        }
+    }
+
+    /**
+     * A node of the search tree that can be searched on any worker thread
+     * Brothers share the bound of their parent, so a brother that finishes
+     * early narrows the window of every brother that has not started yet
+     * A brother that cuts the parent off stops every brother that is still
+     * running, down to the leaves they are searching
+     */
+    private static class Node extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BitBoard board;
+        private final Board.Piece player;
+        private final int depth;
+        private final int ply;
+        private final int slot;
+        private final Node parent;
+        private final TranspositionTable table;
+        private final long search;
+
+        private final AtomicInteger bound = new AtomicInteger();
+        private final AtomicBoolean stop = new AtomicBoolean();
+        private volatile List<Node> children;
+        private boolean maximizing;
+        private int alpha;
+        private int beta;
+        private long nodes;
+
+        /**
+         * Constructor for the Node object
+         *
+         * @param board
+         * The BitBoard this node searches
+         *
+         * @param player
+         * The Piece enum that the AI should associate with
+         *
+         * @param alpha
+         * The lowest score the maximizing player is already guaranteed
+         *
+         * @param beta
+         * The highest score the minimizing player is already guaranteed
+         *
+         * @param depth
+         * How far ahead the AI should look from this node
+         *
+         * @param ply
+         * How many moves the board is from the root of the search
+         *
+         * @param slot
+         * The slot that was played to reach this node, or -1 for the root
+         *
+         * @param parent
+         * The Node this node was reached from, or null for the root
+         *
+         * @param table
+         * The TranspositionTable to read and store results in, or null for none
+         */
+        private Node(BitBoard board, Board.Piece player, int alpha, int beta, int depth, int ply, int slot, Node parent, TranspositionTable table) {
+            this.board = board;
+            this.player = player;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.depth = depth;
+            this.ply = ply;
+            this.slot = slot;
+            this.parent = parent;
+            this.table = table;
+            this.search = parent == null ? SEARCHES.incrementAndGet() : parent.search;
+        }
+
+        /**
+         * Searches the node and returns its score
+         * The window is narrowed by the parent's bound right before starting
+         *
+         * @return
+         * Returns the score of the node for the player
+         */
+        @Override
+        protected Integer compute() {
+            if(this.parent != null) {
+                if(this.parent.maximizing) this.alpha = Math.max(this.alpha, this.parent.bound.get());
+                else this.beta = Math.min(this.beta, this.parent.bound.get());
+
+                // The parent was already cut off, so this result will be ignored
+                if(this.alpha >= this.beta || this.stop.get())
+                    return this.parent.maximizing ? this.alpha : this.beta;
+            }
+
+            final int score = search();
+            if(this.parent != null && isExact(score) && !this.stop.get()) {
+                if(this.parent.maximizing) this.parent.bound.accumulateAndGet(score, Math::max);
+                else this.parent.bound.accumulateAndGet(score, Math::min);
+
+                // The parent is cut off, so the brothers still running are wasted work
+                if(this.parent.maximizing ? score >= this.beta : score <= this.alpha)
+                    for(Node brother : this.parent.children)
+                        if(brother != this)
+                            brother.cancel();
+            }
+
+            return score;
+        }
+
+        /**
+         * Private helper method that stops the node and everything below it
+         * A stopped node's result is ignored by its parent
+         */
+        private void cancel() {
+            this.stop.set(true);
+
+            final List<Node> children = this.children;
+            if(children != null)
+                for(Node child : children)
+                    child.cancel();
+        }
+
+        /**
+         * Private helper method that either splits the node or searches it sequentially
+         *
+         * @return
+         * Returns the score of the node for the player
+         */
+        private int search() {
+            if(this.depth < 0 || this.board.isGameOver() || this.ply >= SPLIT_PLIES || this.depth < MIN_SPLIT_DEPTH) {
+                final SearchContext search = getContext(this.search, this.board.getWidth() * this.board.getHeight(), this.table);
+                search.setAbort(this.stop);
+                final long before = search.getStats().getNodes();
+                final int score = AlphaBeta.alphabeta(this.board, this.player, this.alpha, this.beta, this.depth, this.ply, search);
+                this.nodes = search.getStats().getNodes() - before;
+                return score;
+            }
+
+            return split()[1];
+        }
+
+        /**
+         * Private helper method that searches the first child alone and the rest in parallel
+         * Adds up the nodes of every child that was searched, and leaves out
+         * the scores of children that were stopped
+         *
+         * @return
+         * Returns an int array of size two where the int stored at index 0 is
+         * the best slot to play and the int stored at index 1 is its score
+         */
+        private int[] split() {
+            this.maximizing = this.board.getTurn() == this.player;
+            this.bound.set(this.maximizing ? this.alpha : this.beta);
+
+            final long slots = this.parent == null ? this.board.getUniqueSlots() : this.board.getOpenSlots();
+            final List<Node> children = new ArrayList<>();
+            for(long open = slots; open != 0; open &= open - 1) {
+                final int slot = Long.numberOfTrailingZeros(open);
+                final BitBoard copy = this.board.createCopy();
+                copy.move(slot);
+                children.add(new Node(copy, this.player, this.alpha, this.beta, this.depth - 1, this.ply + 1, slot, this, this.table));
+            }
+
+            // A cancel that came before the children were published has to be seen here
+            this.children = children;
+            if(this.stop.get())
+                return new int[]{-1, 0};
+
+            // The eldest brother is searched first to get a bound for the others
+            final Node eldest = children.get(0);
+            final int first = eldest.invoke();
+            this.nodes = 1 + eldest.nodes;
+            if(this.maximizing ? first >= this.beta : first <= this.alpha)
+                return new int[]{eldest.slot, first};
+
+            if(children.size() > 1)
+                invokeAll(children.subList(1, children.size()));
+
+            int bestSlot = -1;
+            int alpha = this.alpha;
+            int beta = this.beta;
+            for(Node child : children) {
+                final int score = child.join();
+                if(child != eldest)
+                    this.nodes += child.nodes;
+
+                if(!child.isExact(score) || child.stop.get())
+                    continue;
+
+                if(this.maximizing && score > alpha) {
+                    alpha = score;
+                    bestSlot = child.slot;
+                }else if(!this.maximizing && score < beta) {
+                    beta = score;
+                    bestSlot = child.slot;
+                }
+            }
+
+            return new int[]{bestSlot, this.maximizing ? alpha : beta};
+        }
+
+        /**
+         * Private helper method to check if a score improves the parent
+         * A score that failed low for the parent is only an upper bound and
+         * must not be compared with exact scores of its brothers
+         *
+         * @param score
+         * The score this node returned
+         *
+         * @return
+         * Returns true if the score is usable by the parent
+         */
+        private boolean isExact(int score) {
+            return this.parent == null || (this.parent.maximizing ? score > this.alpha : score < this.beta);
+        }
+    }
+
+    /**
+     * Private helper method that gets the SearchContext of the current worker thread
+     * A new context is only made the first time a thread searches a board
+     * of this size, and a context that was used for another search is reset
+     * The killer moves of the last leaf are always cleared, since brother
+     * leaves often belong to different parents
+     *
+     * @param search
+     * The number of the search the leaf belongs to
+     *
+     * @param slots
+     * The amount of slots on the board
+     *
+     * @param table
+     * The TranspositionTable of the search, or null for none
+     *
+     * @return
+     * Returns the SearchContext to search the leaf with
+     */
+    private static SearchContext getContext(long search, int slots, TranspositionTable table) {
+        Worker worker = WORKERS.get();
+        if(worker == null || worker.context.getSlots() != slots) {
+            worker = new Worker(new SearchContext(table, true, SearchContext.NO_DEADLINE, slots));
+            WORKERS.set(worker);
+        }else if(worker.search != search) {
+            worker.context.reset(table);
+        }
+
+        worker.search = search;
+        worker.context.clearKillers();
+        return worker.context;
+    }
+
+    /**
+     * Gets the best move to be played next using several threads
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look before picking a slot
+     *
+     * @param threads
+     * How many threads the search may use
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @return
+     * Returns the best slot to be played
+     */
+    protected static int getMove(Board board, Board.Piece player, int depth, int threads, TranspositionTable table) {
+        return getMove(board, player, depth, threads, table, new SearchStats());
+    }
+
+    /**
+     * Gets the best move to be played next using several threads and
+     * records how many nodes it took
+     * Only the node count is filled in, and with more than one thread it
+     * changes from run to run with the order the threads finish in
+     *
+     * @param board
+     * The Board to check for the best move
+     *
+     * @param player
+     * The Piece enum that the AI should associate with
+     *
+     * @param depth
+     * How far ahead the AI should look before picking a slot
+     *
+     * @param threads
+     * How many threads the search may use
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @param stats
+     * The SearchStats to clear and fill in
+     *
+     * @return
+     * Returns the best slot to be played
+     */
+    protected static int getMove(Board board, Board.Piece player, int depth, int threads, TranspositionTable table, SearchStats stats) {
+        if(threads < 1)
+            throw new IllegalArgumentException("At least one thread is needed");
+
+        stats.start();
+        try {
+            final BitBoard root = new BitBoard(board);
+            if(depth < 0 || root.isGameOver())
+                return -1;
+
+            final Node node = new Node(root, player, Integer.MIN_VALUE, Integer.MAX_VALUE, depth, 0, -1, null, table);
+            final int slot = POOLS.computeIfAbsent(threads, ForkJoinPool::new).invoke(new RecursiveTask<int[]>() {
+                @Override
+                protected int[] compute() {
+                    return node.split();
+                }
+            })[0];
+
+            stats.nodes = node.nodes;
+            return slot;
+        }finally {
+            stats.stop();
+        }
+    }
+}
\ No newline at end of file
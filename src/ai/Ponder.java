@@ -0,0 +1,204 @@
+package ai;
+
+import game.BitBoard;
+import game.Board;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class that lets the AI think on the opponent's time
+ * While the opponent is to move, every reply they could make is searched
+ * in the background, the most likely one first, and the results end up in
+ * the TranspositionTable shared with the real search
+ *
+ * The replies are searched in rounds with a growing time slice each, so
+ * every reply gets some attention early on and the likely ones keep getting
+ * most of it on boards that are too large to solve
+ * Once the opponent moved, a reply that was searched to the end is answered
+ * right away and any other reply continues from the warm table
+ */
+public class Ponder {
+
+    private static final long PREDICT_MILLIS = 20;
+    private static final long SLICE_MILLIS = 20;
+    private static final long MAX_SLICE_MILLIS = 5000;
+
+    private final BitBoard root;
+    private final Board.Piece player;
+    private final TranspositionTable table;
+    private final Executor executor;
+    private final AtomicBoolean abort;
+
+    private final int[] moves;
+    private final boolean[] solved;
+    private final CompletableFuture<Void> task;
+
+    /**
+     * Default constructor for the Ponder object
+     * Starts pondering right away
+     *
+     * @param board
+     * The Board on which the opponent is to move, copied before returning
+     *
+     * @param player
+     * The Piece enum that the AI plays with, which is not the one to move
+     *
+     * @param table
+     * The TranspositionTable the real search will use, must not be null
+     *
+     * @param executor
+     * The Executor to ponder and later search on
+     *
+     * @throws IllegalArgumentException
+     * Throws if the table is null or the player is the one to move
+     */
+    Ponder(Board board, Board.Piece player, TranspositionTable table, Executor executor) {
+        if(table == null)
+            throw new IllegalArgumentException("Pondering needs a table to share");
+        if(!board.isGameOver() && board.getTurn() == player)
+            throw new IllegalArgumentException("Can only ponder while the opponent is to move");
+
+        this.root = new BitBoard(board);
+        this.player = player;
+        this.table = table;
+        this.executor = executor;
+        this.abort = new AtomicBoolean();
+        this.moves = new int[board.getWidth() * board.getHeight()];
+        this.solved = new boolean[this.moves.length];
+        Arrays.fill(this.moves, -1);
+
+        this.task = this.root.isGameOver()
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(this::ponder, executor);
+    }
+
+    /**
+     * Stops pondering and asks for the move to play after the opponent moved
+     * Answers at once when the reply was already searched to the end, and
+     * otherwise starts a timed search that reuses the pondered results
+     *
+     * @see AI#requestMove(Board, Board.Piece, long, Executor)
+     *
+     * @param board
+     * The Board after the opponent's move
+     *
+     * @param millis
+     * How many milliseconds from now the AI may think for if the reply was
+     * not solved while pondering
+     *
+     * @return
+     * Returns a CompletableFuture that completes with the slot the AI wants to play
+     */
+    public CompletableFuture<Integer> requestMove(Board board, long millis) {
+        stop();
+
+        final int reply = getReply(new BitBoard(board));
+        if(reply >= 0) {
+            synchronized(this) {
+                if(this.solved[reply])
+                    return CompletableFuture.completedFuture(this.moves[reply]);
+            }
+        }
+
+        return AI.requestMove(board, this.player, millis, this.executor);
+    }
+
+    /**
+     * Stops pondering
+     * Safe to call more than once
+     */
+    public void stop() {
+        this.abort.set(true);
+    }
+
+    /**
+     * Checks if pondering has stopped, either because every reply was
+     * searched to the end or because it was stopped
+     *
+     * @return
+     * Returns true if no more work is being done, else returns false
+     */
+    public boolean isDone() {
+        return this.task.isDone();
+    }
+
+    /**
+     * Private helper method that searches the replies until every one of them
+     * is solved or pondering is stopped
+     */
+    private void ponder() {
+        final Board.Piece opponent = this.root.getTurn();
+        final int slots = this.moves.length;
+
+        // Guess the opponent's move with a short search from their side
+        final SearchContext guess = new SearchContext(this.table, true, deadline(PREDICT_MILLIS), slots, this.abort, 0, new SearchStats());
+        final int predicted = AlphaBeta.iterate(this.root.createCopy(), opponent, 0, guess);
+
+        final int count = guess.orderMoves(this.root, 0, this.root.getOpenSlots(), predicted);
+        final int[] replies = new int[count];
+        for(int i = 0; i < count; i++)
+            replies[i] = guess.getMove(0, i);
+
+        int open = count;
+        for(long slice = SLICE_MILLIS; open > 0 && !this.abort.get(); slice = Math.min(slice * 2, MAX_SLICE_MILLIS)) {
+            for(int i = 0; i < count && !this.abort.get(); i++) {
+                final int reply = replies[i];
+                if(this.solved[reply])
+                    continue;
+
+                final BitBoard board = this.root.createCopy();
+                board.move(reply);
+
+                final SearchContext search = new SearchContext(this.table, true, deadline(slice), slots, this.abort, 0, new SearchStats());
+                final int move = board.isGameOver() ? -1 : AlphaBeta.iterate(board, this.player, 0, search);
+                synchronized(this) {
+                    this.moves[reply] = move;
+                    this.solved[reply] = !search.wasStopped();
+                }
+
+                if(this.solved[reply])
+                    open--;
+            }
+        }
+    }
+
+    /**
+     * Private helper method that finds the move the opponent made
+     *
+     * @param board
+     * The position after the opponent's move
+     *
+     * @return
+     * Returns the slot the opponent played, or -1 if the position does not
+     * follow from the pondered one by a single move
+     */
+    private int getReply(BitBoard board) {
+        if(this.root.isGameOver() || board.getWidth() != this.root.getWidth() || board.getHeight() != this.root.getHeight()
+                || board.getWinLength() != this.root.getWinLength())
+            return -1;
+
+        final Board.Piece opponent = this.root.getTurn();
+        final long added = board.getMask(opponent) & ~this.root.getMask(opponent);
+        if(board.getMask(this.player) != this.root.getMask(this.player) || Long.bitCount(added) != 1
+                || (this.root.getMask(opponent) & ~board.getMask(opponent)) != 0)
+            return -1;
+
+        return Long.numberOfTrailingZeros(added);
+    }
+
+    /**
+     * Private helper method that turns a time slice into a deadline
+     *
+     * @param millis
+     * How many milliseconds from now the search may take
+     *
+     * @return
+     * Returns the System#nanoTime() at which the search should stop
+     */
+    private static long deadline(long millis) {
+        return System.nanoTime() + millis * 1_000_000;
+    }
+}
@@ -0,0 +1,320 @@
+package ai;
+
+import game.BitBoard;
+import game.Board;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class that holds everything a single search needs besides the board
+ * This includes the table, the deadline and the move ordering heuristics
+ *
+ * A SearchContext belongs to exactly one search on one thread at a time
+ * All buffers are allocated up front so ordering moves allocates nothing,
+ * and a thread that runs many searches can reset and reuse its context
+ */
+class SearchContext {
+
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int KILLER_MOVE = 1 << 29;
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private TranspositionTable table;
+    private final boolean ordering;
+    private final long deadline;
+    private AtomicBoolean abort;
+    private final SearchStats stats;
+
+    private final int[][] moves;
+    private final int[][] scores;
+    private final int[][] killers;
+    private final int[][] history;
+
+    private boolean stopped;
+    private long random;
+
+    /**
+     * Default constructor for the SearchContext object
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @param ordering
+     * True to order moves with the heuristics, false to search slots in ascending order
+     *
+     * @param deadline
+     * The System#nanoTime() after which the search should stop, or NO_DEADLINE
+     *
+     * @param slots
+     * The amount of slots on the board that will be searched
+     */
+    SearchContext(TranspositionTable table, boolean ordering, long deadline, int slots) {
+        this(table, ordering, deadline, slots, null, 0, new SearchStats());
+    }
+
+    /**
+     * Constructor for a SearchContext that can be stopped from another thread
+     * and whose move order is perturbed so it explores the tree differently
+     * than other searches sharing the same table
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     *
+     * @param ordering
+     * True to order moves with the heuristics, false to search slots in ascending order
+     *
+     * @param deadline
+     * The System#nanoTime() after which the search should stop, or NO_DEADLINE
+     *
+     * @param slots
+     * The amount of slots on the board that will be searched
+     *
+     * @param abort
+     * A flag that stops the search once it is set, or null for none
+     *
+     * @param seed
+     * The seed for the move order noise, or 0 for the plain move order
+     *
+     * @param stats
+     * The SearchStats the search fills in
+     */
+    SearchContext(TranspositionTable table, boolean ordering, long deadline, int slots, AtomicBoolean abort, long seed, SearchStats stats) {
+        this.table = table;
+        this.stats = stats;
+        this.ordering = ordering;
+        this.deadline = deadline;
+        this.abort = abort;
+        this.random = seed;
+        this.moves = new int[slots + 1][slots];
+        this.scores = new int[slots + 1][slots];
+        this.killers = new int[slots + 1][];
+        this.history = new int[2][slots];
+
+        for(int ply = 0; ply <= slots; ply++)
+            this.killers[ply] = new int[]{-1, -1};
+    }
+
+    /**
+     * Gets the context ready for the next search on the same thread
+     * Keeps the buffers but forgets the killer moves and history of the
+     * last search, and lifts its stop
+     *
+     * @param table
+     * The TranspositionTable to read and store results in, or null for none
+     */
+    void reset(TranspositionTable table) {
+        this.table = table;
+        this.stopped = false;
+        clearKillers();
+        for(int[] side : this.history)
+            Arrays.fill(side, 0);
+    }
+
+    /**
+     * Forgets the killer moves before searching an unrelated position
+     * Killer moves only help among positions that share most of their pieces,
+     * while the history ranks slots that are good on the board as a whole and
+     * is kept
+     */
+    void clearKillers() {
+        for(int[] killers : this.killers) {
+            killers[0] = -1;
+            killers[1] = -1;
+        }
+    }
+
+    /**
+     * Hands the context the abort flag of the next position it searches
+     * and lifts the stop of the last one
+     *
+     * @param abort
+     * A flag that stops the search once it is set, or null for none
+     */
+    void setAbort(AtomicBoolean abort) {
+        this.abort = abort;
+        this.stopped = false;
+    }
+
+    /**
+     * Gets the amount of slots the buffers were allocated for
+     *
+     * @return
+     * Returns the amount of slots on the boards the context can search
+     */
+    int getSlots() {
+        return this.history[0].length;
+    }
+
+    /**
+     * Gets the table used by the search
+     *
+     * @return
+     * Returns the TranspositionTable, or null if the search has none
+     */
+    TranspositionTable getTable() {
+        return this.table;
+    }
+
+    /**
+     * Checks the clock and abort flag every so often, based on the node count
+     * Once the deadline has passed or the flag is set the search is stopped for good
+     *
+     * @return
+     * Returns true if the search should stop, else returns false
+     */
+    boolean isStopped() {
+        if(!this.stopped && this.stats.nodes % CHECK_INTERVAL == 0
+                && ((this.abort != null && this.abort.get())
+                    || (this.deadline != NO_DEADLINE && System.nanoTime() > this.deadline)))
+            this.stopped = true;
+
+        return this.stopped;
+    }
+
+    /**
+     * Gets the statistics of the search
+     *
+     * @return
+     * Returns the SearchStats the search fills in
+     */
+    SearchStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Checks if the search was stopped without checking the clock
+     *
+     * @return
+     * Returns true if the search ran out of time or was aborted, else returns false
+     */
+    boolean wasStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Fills the move buffer of a ply with the slots to search, best first
+     * The hash move goes first, then the killer moves, then slots ranked by
+     * the history heuristic and finally by how many lines go through them
+     * A seeded search adds a little noise to the last two so that slots of
+     * about the same rank are tried in a different order
+     * Without ordering the slots are left in ascending order
+     *
+     * @param board
+     * The BitBoard the moves will be played on
+     *
+     * @param ply
+     * How many moves the board is from the root of the search
+     *
+     * @param candidates
+     * The mask of slots to order
+     *
+     * @param hashSlot
+     * The best slot from the table or previous iteration, or -1 for none
+     *
+     * @return
+     * Returns the amount of moves in the buffer
+     *
+     * @see SearchContext#getMove(int, int)
+     */
+    int orderMoves(BitBoard board, int ply, long candidates, int hashSlot) {
+        final int[] moves = this.moves[ply];
+        final int[] scores = this.scores[ply];
+        final int[] history = this.history[board.getTurn().ordinal()];
+
+        int count = 0;
+        for(long open = candidates; open != 0; open &= open - 1) {
+            final int slot = Long.numberOfTrailingZeros(open);
+            int score = 0;
+            if(this.ordering) {
+                if(slot == hashSlot) score = HASH_MOVE;
+                else if(slot == this.killers[ply][0] || slot == this.killers[ply][1]) score = KILLER_MOVE;
+                else score = history[slot] * 16 + board.getLineCount(slot) + noise();
+            }
+
+            // Insertion sort keeps equal scores in ascending slot order
+            int i = count++;
+            for(; i > 0 && scores[i - 1] < score; i--) {
+                moves[i] = moves[i - 1];
+                scores[i] = scores[i - 1];
+            }
+
+            moves[i] = slot;
+            scores[i] = score;
+        }
+
+        return count;
+    }
+
+    /**
+     * Private helper method for the move order noise
+     * Steps a xorshift generator so seeded searches stay cheap and repeatable
+     *
+     * @return
+     * Returns a number between 0 and 7, or always 0 for an unseeded search
+     */
+    private int noise() {
+        if(this.random == 0)
+            return 0;
+
+        this.random ^= this.random << 13;
+        this.random ^= this.random >>> 7;
+        this.random ^= this.random << 17;
+        return (int)(this.random & 7);
+    }
+
+    /**
+     * Gets a move from the buffer filled by SearchContext#orderMoves
+     *
+     * @see SearchContext#orderMoves(BitBoard, int, long, int)
+     *
+     * @param ply
+     * How many moves the board is from the root of the search
+     *
+     * @param i
+     * The position of the move in the ordered buffer
+     *
+     * @return
+     * Returns the slot to search
+     */
+    int getMove(int ply, int i) {
+        return this.moves[ply][i];
+    }
+
+    /**
+     * Records a slot that caused a cutoff so it is tried early next time
+     *
+     * @param turn
+     * The Piece enum of the player that played the slot
+     *
+     * @param ply
+     * How many moves the board is from the root of the search
+     *
+     * @param slot
+     * The slot that caused the cutoff
+     *
+     * @param depth
+     * How far below the node was still searched
+     */
+    void onCutoff(Board.Piece turn, int ply, int slot, int depth) {
+        if(!this.ordering)
+            return;
+
+        final int[] killers = this.killers[ply];
+        if(killers[0] != slot) {
+            killers[1] = killers[0];
+            killers[0] = slot;
+        }
+
+        final int[] history = this.history[turn.ordinal()];
+        final int bonus = Math.min(depth, 64) + 1;
+        history[slot] += bonus * bonus;
+        if(history[slot] > HISTORY_LIMIT)
+            for(int[] side : this.history)
+                for(int i = 0; i < side.length; i++)
+                    side[i] >>= 1;
+    }
+}
\ No newline at end of file
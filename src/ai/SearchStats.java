@@ -0,0 +1,186 @@
+package ai;
+
+import java.util.Arrays;
+
+/**
+ * Class that collects how much work a search did
+ * One object can be passed to search after search, every search starts
+ * by clearing it and fills it in as it goes
+ *
+ * Counting is a handful of plain field increments per node, so it is
+ * cheap enough to leave on all the time
+ * An object must not be shared by searches running at the same time
+ */
+public class SearchStats {
+
+    private static final int MAX_INDEXES = 64;
+
+    long nodes;
+    long terminalNodes;
+    long cutoffs;
+    long tableProbes;
+    long tableHits;
+    int maxDepth;
+
+    private final long[] cutoffIndexes = new long[MAX_INDEXES];
+    private long start;
+    private long elapsed;
+
+    /**
+     * Clears every counter and starts the clock
+     * Called by the search itself, so there is no need to call this by hand
+     */
+    void start() {
+        this.nodes = 0;
+        this.terminalNodes = 0;
+        this.cutoffs = 0;
+        this.tableProbes = 0;
+        this.tableHits = 0;
+        this.maxDepth = 0;
+        this.elapsed = 0;
+        Arrays.fill(this.cutoffIndexes, 0);
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Stops the clock
+     * Called by the search itself, so there is no need to call this by hand
+     */
+    void stop() {
+        this.elapsed = System.nanoTime() - this.start;
+    }
+
+    /**
+     * Records a beta cutoff
+     *
+     * @param index
+     * The position of the cutting move in the ordered moves, 0 for the first move
+     */
+    void onCutoff(int index) {
+        this.cutoffs++;
+        this.cutoffIndexes[index]++;
+    }
+
+    /**
+     * Gets the amount of positions the search visited
+     *
+     * @return
+     * Returns the amount of nodes, including terminal nodes
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Gets the amount of positions that were scored without searching deeper
+     * These are finished games and positions at the depth limit
+     *
+     * @return
+     * Returns the amount of terminal nodes
+     */
+    public long getTerminalNodes() {
+        return this.terminalNodes;
+    }
+
+    /**
+     * Gets the amount of nodes that stopped early because of a beta cutoff
+     *
+     * @return
+     * Returns the amount of beta cutoffs
+     */
+    public long getCutoffs() {
+        return this.cutoffs;
+    }
+
+    /**
+     * Gets the amount of beta cutoffs caused by the move at a certain position
+     * With good move ordering almost every cutoff is caused by the first move
+     *
+     * @param index
+     * The position of the move in the ordered moves, 0 for the first move
+     *
+     * @return
+     * Returns the amount of beta cutoffs caused by the move at the index
+     */
+    public long getCutoffs(int index) {
+        return index < 0 || index >= MAX_INDEXES ? 0 : this.cutoffIndexes[index];
+    }
+
+    /**
+     * Gets the share of beta cutoffs caused by the first move tried
+     *
+     * @return
+     * Returns a number between 0 and 1, or 0 if there were no cutoffs
+     */
+    public double getFirstMoveCutoffRate() {
+        return this.cutoffs == 0 ? 0 : (double)this.cutoffIndexes[0] / this.cutoffs;
+    }
+
+    /**
+     * Gets the amount of times the TranspositionTable was looked at
+     *
+     * @return
+     * Returns the amount of probes, or 0 if the search had no table
+     */
+    public long getTableProbes() {
+        return this.tableProbes;
+    }
+
+    /**
+     * Gets the amount of probes that returned a usable score
+     *
+     * @return
+     * Returns the amount of table hits, or 0 if the search had no table
+     */
+    public long getTableHits() {
+        return this.tableHits;
+    }
+
+    /**
+     * Gets how many moves below the root the search went
+     *
+     * @return
+     * Returns the deepest ply that was visited
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * Gets the effective branching factor of the search
+     * This is the branching factor a uniform tree of the same depth would
+     * need to have as many nodes, so lower means better pruning
+     *
+     * @return
+     * Returns the effective branching factor, or 0 if nothing was searched
+     */
+    public double getEffectiveBranchingFactor() {
+        if(this.nodes == 0)
+            return 0;
+
+        return this.maxDepth == 0 ? this.nodes : Math.pow(this.nodes, 1.0 / this.maxDepth);
+    }
+
+    /**
+     * Gets how long the search took
+     *
+     * @return
+     * Returns the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return this.elapsed;
+    }
+
+    /**
+     * The String representation of the SearchStats object
+     *
+     * @return
+     * Returns every counter on a single line
+     */
+    @Override
+    public String toString() {
+        return String.format("nodes=%d terminal=%d cutoffs=%d firstMoveCutoffs=%.2f tableHits=%d/%d maxDepth=%d ebf=%.2f elapsed=%.3fms",
+                this.nodes, this.terminalNodes, this.cutoffs, getFirstMoveCutoffRate(), this.tableHits, this.tableProbes,
+                this.maxDepth, getEffectiveBranchingFactor(), this.elapsed / 1e6);
+    }
+}
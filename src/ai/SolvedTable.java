@@ -0,0 +1,249 @@
+package ai;
+
+import game.BitBoard;
+import game.Board;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Static class that holds the solved 3x3 game
+ * Every reachable position is solved once and looked up from then on
+ *
+ * The table is a file with one short for each of the 3^9 base 3 indexes
+ * Bits 0-8 are a mask of every best slot, bits 9-10 are the value for the
+ * player to move plus one and bit 11 marks the position as reachable
+ * The file is created the first time it is needed and memory mapped after
+ */
+public class SolvedTable {
+
+    private static final String FILE = "data/solved.bin";
+    private static final int MAGIC = 0x54545431;
+    private static final int HEADER = 8;
+    private static final int POSITIONS = 19683;
+
+    private static final int SLOTS = 0x1FF;
+    private static final int REACHABLE = 1 << 11;
+
+    /**
+     * Holder class so the table is only loaded once it is first needed
+     */
+    private static class Holder {
+        private static final ByteBuffer TABLE = load(new File(FILE));
+    }
+
+    /**
+     * Gets the best move to be played next with a single lookup
+     * Picks the lowest best slot, which is the slot AlphaBeta would pick
+     *
+     * @param board
+     * The Board to get the best move for
+     *
+     * @return
+     * Returns the best slot to be played for the player to move
+     * Returns -1 if the game is already over
+     *
+     * @throws IllegalArgumentException
+     * Throws if the Board is not a normal 3 by 3 Board
+     */
+    protected static int getMove(Board board) {
+        if(board.getWidth() != 3 || board.getHeight() != 3 || board.getWinLength() != 3)
+            throw new IllegalArgumentException("Only the 3 by 3 game is solved");
+
+        return getMove(new BitBoard(board));
+    }
+
+    /**
+     * Gets the best move to be played next with a single lookup
+     *
+     * @param board
+     * The BitBoard to get the best move for
+     *
+     * @return
+     * Returns the best slot to be played for the player to move
+     * Returns -1 if the game is already over
+     */
+    protected static int getMove(BitBoard board) {
+        final int slots = getBestSlots(board);
+        return slots == 0 ? -1 : Integer.numberOfTrailingZeros(slots);
+    }
+
+    /**
+     * Gets every slot that keeps the best possible result
+     *
+     * @param board
+     * The BitBoard to get the best slots for
+     *
+     * @return
+     * Returns a 9 bit mask where bit n is set if slot n is a best move
+     */
+    protected static int getBestSlots(BitBoard board) {
+        return Holder.TABLE.getShort(HEADER + board.getIndex() * 2) & SLOTS;
+    }
+
+    /**
+     * Gets the game theoretic value of a position
+     *
+     * @param board
+     * The BitBoard to get the value of
+     *
+     * @return
+     * Returns 1 if the player to move wins with perfect play,
+     * -1 if they lose and 0 if the game is a draw
+     */
+    protected static int getValue(BitBoard board) {
+        return ((Holder.TABLE.getShort(HEADER + board.getIndex() * 2) >> 9) & 0b11) - 1;
+    }
+
+    /**
+     * Private helper method that maps the table file into memory
+     * The file is solved and written first if it does not exist or is invalid
+     *
+     * @param file
+     * The file the table is stored in
+     *
+     * @return
+     * Returns a read only view of the table
+     */
+    private static ByteBuffer load(File file) {
+        try {
+            if(!isValid(file))
+                write(file, solve());
+
+            try(RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }catch(IOException e) {
+            // Fall back to a table on the heap if the file system is not writable
+            final ByteBuffer buffer = ByteBuffer.allocate(HEADER + POSITIONS * 2);
+            buffer.putInt(MAGIC).putInt(POSITIONS);
+            for(short entry : solve())
+                buffer.putShort(entry);
+
+            return buffer.asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Private helper method to check a table file before mapping it
+     *
+     * @param file
+     * The file the table is stored in
+     *
+     * @return
+     * Returns true if the file exists and has a matching header
+     *
+     * @throws IOException
+     * Throws if the file exists but cannot be read
+     */
+    private static boolean isValid(File file) throws IOException {
+        if(!file.isFile() || file.length() != HEADER + POSITIONS * 2)
+            return false;
+
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return raf.readInt() == MAGIC && raf.readInt() == POSITIONS;
+        }
+    }
+
+    /**
+     * Private helper method that writes a solved table to disk
+     * The table is written to a temporary file first so readers never see half a table
+     *
+     * @param file
+     * The file the table should be stored in
+     *
+     * @param entries
+     * The solved entries indexed by base 3 index
+     *
+     * @throws IOException
+     * Throws if the file could not be written
+     */
+    private static void write(File file, short[] entries) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if(!parent.isDirectory() && !parent.mkdirs())
+            throw new IOException("Unable to create " + parent);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER + entries.length * 2);
+        buffer.putInt(MAGIC).putInt(entries.length);
+        for(short entry : entries)
+            buffer.putShort(entry);
+
+        final File tmp = File.createTempFile("solved", ".tmp", parent);
+        Files.write(tmp.toPath(), buffer.array());
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Solves every reachable position starting from the empty board
+     *
+     * @return
+     * Returns the packed entries indexed by base 3 index
+     */
+    private static short[] solve() {
+        final short[] entries = new short[POSITIONS];
+        solve(new BitBoard(), entries);
+        return entries;
+    }
+
+    /**
+     * Private helper method that solves a position and all positions after it
+     * Every position is only solved once no matter how often it is reached
+     *
+     * @param board
+     * The BitBoard to solve
+     *
+     * @param entries
+     * The packed entries indexed by base 3 index
+     *
+     * @return
+     * Returns the value of the position for the player to move
+     */
+    private static int solve(BitBoard board, short[] entries) {
+        final int index = board.getIndex();
+        if(entries[index] != 0)
+            return ((entries[index] >> 9) & 0b11) - 1;
+
+        int value = board.getWinner() != null ? -1 : 0;
+        int slots = 0;
+        if(!board.isGameOver()) {
+            value = -1;
+            for(long open = board.getOpenSlots(); open != 0; open &= open - 1) {
+                final int slot = Long.numberOfTrailingZeros(open);
+                final BitBoard copy = board.createCopy();
+                copy.move(slot);
+
+                final int score = -solve(copy, entries);
+                if(score > value || slots == 0) {
+                    value = score;
+                    slots = 1 << slot;
+                }else if(score == value) {
+                    slots |= 1 << slot;
+                }
+            }
+        }
+
+        entries[index] = (short)(REACHABLE | (value + 1) << 9 | slots);
+        return value;
+    }
+
+    /**
+     * Solves the game and writes the table to disk ahead of time
+     * Lets the table be shipped as a build artifact instead of created on first start
+     *
+     * @param args
+     * An optional path to write the table to
+     *
+     * @throws IOException
+     * Throws if the file could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        final File file = new File(args.length > 0 ? args[0] : FILE);
+        write(file, solve());
+        System.out.println("Wrote " + POSITIONS + " entries to " + file);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+package ai;
+
+import java.util.Arrays;
+
+/**
+ * Class that caches the results of previously searched positions
+ * Lets the AI skip positions it reaches again through a different move order
+ *
+ * Every entry holds the score, the best slot, how many plies were searched
+ * and whether the score is exact or only a bound
+ * Scores are stored from the point of view of the player to move so that
+ * the same entry can be reused no matter which side the AI plays
+ *
+ * The table can be shared by several threads without any locking
+ * Each slot keeps the entry next to the key xor the entry, so a slot that
+ * was torn by two threads writing at once no longer matches its key and
+ * reads as empty instead of returning another position's result
+ */
+public class TranspositionTable {
+
+    /**
+     * Decides what happens when two positions hash to the same entry
+     */
+    public enum Replacement {
+        /** The newest result always overwrites the entry */
+        ALWAYS,
+        /** The entry is only overwritten by a result searched at least as deep */
+        DEPTH_PREFERRED
+    }
+
+    public static final int EMPTY = 0;
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private static final int MAX_PLIES = 0x7F;
+
+    private final long[] checks;
+    private final long[] entries;
+    private final int shift;
+    private final Replacement replacement;
+
+    /**
+     * Default constructor for the TranspositionTable object
+     *
+     * @param size
+     * The amount of entries in the table
+     * This is rounded up to the next power of two
+     *
+     * @param replacement
+     * The Replacement policy used when two positions collide
+     */
+    public TranspositionTable(int size, Replacement replacement) {
+        if(size < 1)
+            throw new IllegalArgumentException("Size must be positive");
+
+        final int capacity = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        this.checks = new long[capacity];
+        this.entries = new long[capacity];
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        this.replacement = replacement;
+    }
+
+    /**
+     * Looks up the entry stored for a position
+     *
+     * @param key
+     * The unique key of the position
+     *
+     * @return
+     * Returns the packed entry for the position
+     * Returns EMPTY if nothing is stored for the position
+     *
+     * @see TranspositionTable#bound(int)
+     * @see TranspositionTable#score(int)
+     * @see TranspositionTable#slot(int)
+     * @see TranspositionTable#plies(int)
+     */
+    public int probe(long key) {
+        final int i = index(key);
+        final long entry = this.entries[i];
+        return (this.checks[i] ^ entry) == key ? (int)entry : EMPTY;
+    }
+
+    /**
+     * Stores the result of a search in the table
+     *
+     * @param key
+     * The unique key of the position
+     *
+     * @param score
+     * The score from the point of view of the player to move
+     * Scores are clamped to the range of a short
+     *
+     * @param slot
+     * The best slot found, or -1 if none was found
+     *
+     * @param plies
+     * How many plies below the position were searched
+     * Results of more than 127 plies are not stored, since they would read
+     * back as a different amount of plies
+     *
+     * @param bound
+     * Either EXACT, LOWER or UPPER
+     */
+    public void store(long key, int score, int slot, int plies, int bound) {
+        if(plies < 0 || plies > MAX_PLIES)
+            return;
+
+        final int i = index(key);
+        final long old = this.entries[i];
+        if(this.replacement == Replacement.DEPTH_PREFERRED && (int)old != EMPTY
+                && (this.checks[i] ^ old) != key && plies((int)old) > plies)
+            return;
+
+        score = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score));
+        final long entry = ((score << 16) | ((slot + 1) & 0x7F) << 9 | (plies << 2) | bound) & 0xFFFFFFFFL;
+        this.entries[i] = entry;
+        this.checks[i] = key ^ entry;
+    }
+
+    /**
+     * Removes every entry from the table
+     * Should not be called while a search is still using the table
+     */
+    public void clear() {
+        Arrays.fill(this.checks, 0);
+        Arrays.fill(this.entries, EMPTY);
+    }
+
+    /**
+     * Gets the amount of entries the table can hold
+     *
+     * @return
+     * Returns the capacity of the table
+     */
+    public int size() {
+        return this.entries.length;
+    }
+
+    /**
+     * Private helper method to spread keys over the table
+     *
+     * @param key
+     * The unique key of the position
+     *
+     * @return
+     * Returns the index in the table the key belongs to
+     */
+    private int index(long key) {
+        return this.shift == 64 ? 0 : (int)((key * 0x9E3779B97F4A7C15L) >>> this.shift);
+    }
+
+    /**
+     * Gets the bound type of a packed entry
+     *
+     * @param entry
+     * The entry returned by TranspositionTable#probe(long)
+     *
+     * @return
+     * Returns EMPTY, EXACT, LOWER or UPPER
+     */
+    public static int bound(int entry) {
+        return entry & 0b11;
+    }
+
+    /**
+     * Gets the amount of plies searched for a packed entry
+     *
+     * @param entry
+     * The entry returned by TranspositionTable#probe(long)
+     *
+     * @return
+     * Returns how many plies below the position were searched
+     */
+    public static int plies(int entry) {
+        return (entry >>> 2) & MAX_PLIES;
+    }
+
+    /**
+     * Gets the best slot of a packed entry
+     *
+     * @param entry
+     * The entry returned by TranspositionTable#probe(long)
+     *
+     * @return
+     * Returns the best slot, or -1 if no best slot was stored
+     */
+    public static int slot(int entry) {
+        return ((entry >>> 9) & 0x7F) - 1;
+    }
+
+    /**
+     * Gets the score of a packed entry
+     *
+     * @param entry
+     * The entry returned by TranspositionTable#probe(long)
+     *
+     * @return
+     * Returns the score from the point of view of the player to move
+     */
+    public static int score(int entry) {
+        return entry >> 16;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,564 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class that represents a TicTacToe Board object as a pair of bitmasks
+ * Acts as a lightweight alternative to Board that the AI can search with
+ *
+ * Bit n of each mask is set when that player owns slot n
+ * The open slots are derived from the two masks instead of being stored
+ * Boards of up to 64 slots are supported, so anything up to 8 by 8
+ */
+public class BitBoard {
+
+    static final int MAX_SLOTS = 64;
+    private static final int MAX_INDEXED_SLOTS = 19;
+    private static final int[] POW3 = new int[MAX_INDEXED_SLOTS];
+
+    static {
+        POW3[0] = 1;
+        for(int i = 1; i < MAX_INDEXED_SLOTS; i++)
+            POW3[i] = POW3[i - 1] * 3;
+    }
+
+    /**
+     * Everything about a board size that never changes between positions
+     * Layouts are created once for every size and shared between all BitBoards
+     */
+    private static class Layout {
+
+        private static final Map<List<Integer>, Layout> CACHE = new ConcurrentHashMap<>();
+
+        private final int width;
+        private final int height;
+        private final int winLength;
+        private final int slots;
+        private final long full;
+        private final long[][] lines;
+        private final Symmetry symmetry;
+        private final long[][] keys;
+
+        /**
+         * Constructor for the Layout object
+         * Precomputes the mask of every winning line through every slot
+         *
+         * @param width
+         * The amount of columns on the board
+         *
+         * @param height
+         * The amount of rows on the board
+         *
+         * @param winLength
+         * The amount of pieces in a row needed to win
+         */
+        private Layout(int width, int height, int winLength) {
+            this.width = width;
+            this.height = height;
+            this.winLength = winLength;
+            this.slots = width * height;
+            this.full = this.slots == MAX_SLOTS ? -1L : (1L << this.slots) - 1;
+            this.symmetry = Symmetry.of(width, height);
+
+            final List<List<Long>> lines = new ArrayList<>();
+            for(int i = 0; i < this.slots; i++)
+                lines.add(new ArrayList<>());
+
+            final int[][] directions = { {1, 0}, {0, 1}, {1, 1}, {1, -1} };
+            for(int y = 0; y < height; y++) {
+                for(int x = 0; x < width; x++) {
+                    for(int[] direction : directions) {
+                        final int endX = x + direction[0] * (winLength - 1);
+                        final int endY = y + direction[1] * (winLength - 1);
+                        if(endX < 0 || endX >= width || endY < 0 || endY >= height)
+                            continue;
+
+                        long line = 0;
+                        for(int i = 0; i < winLength; i++)
+                            line |= 1L << ((y + direction[1] * i) * width + x + direction[0] * i);
+
+                        for(long rest = line; rest != 0; rest &= rest - 1)
+                            lines.get(Long.numberOfTrailingZeros(rest)).add(line);
+                    }
+                }
+            }
+
+            this.lines = new long[this.slots][];
+            for(int i = 0; i < this.slots; i++)
+                this.lines[i] = lines.get(i).stream().mapToLong(Long::longValue).toArray();
+
+            // Every size gets its own random keys so positions of different sizes never share a key
+            final SplittableRandom random = new SplittableRandom(((long)width << 40) ^ ((long)height << 20) ^ winLength);
+            this.keys = new long[2][this.slots + 1];
+            for(long[] row : this.keys)
+                for(int i = 0; i < row.length; i++)
+                    row[i] = random.nextLong();
+        }
+
+        /**
+         * Gets the shared Layout for a board size
+         *
+         * @param width
+         * The amount of columns on the board
+         *
+         * @param height
+         * The amount of rows on the board
+         *
+         * @param winLength
+         * The amount of pieces in a row needed to win
+         *
+         * @return
+         * Returns the Layout for the board size
+         */
+        private static Layout of(int width, int height, int winLength) {
+            return CACHE.computeIfAbsent(List.of(width, height, winLength), key -> new Layout(width, height, winLength));
+        }
+    }
+
+    private final Layout layout;
+    private final long[] keys;
+
+    private long xMask;
+    private long oMask;
+    private int index;
+
+    private Board.Piece turn;
+    private Board.Piece winner;
+    private boolean gameOver;
+
+    /**
+     * Default constructor for the BitBoard object
+     * Creates a normal 3 by 3 BitBoard with 3 in a row
+     */
+    public BitBoard() {
+        this(3, 3, 3);
+    }
+
+    /**
+     * Constructor for a BitBoard object of any size up to 64 slots
+     * Initializes all variables to their default states
+     *
+     * @param width
+     * The amount of columns on the BitBoard
+     *
+     * @param height
+     * The amount of rows on the BitBoard
+     *
+     * @param winLength
+     * The amount of pieces in a row needed to win
+     *
+     * @throws IllegalArgumentException
+     * Throws if the BitBoard would have more than 64 slots or nobody could ever win
+     */
+    public BitBoard(int width, int height, int winLength) {
+        if(width < 1 || height < 1 || width * height > MAX_SLOTS)
+            throw new IllegalArgumentException("BitBoard must have between 1 and " + MAX_SLOTS + " slots");
+        if(winLength < 1 || winLength > Math.max(width, height))
+            throw new IllegalArgumentException("Win length must fit on the board");
+
+        this.layout = Layout.of(width, height, winLength);
+        this.keys = new long[this.layout.symmetry.count()];
+        reset();
+    }
+
+    /**
+     * Utility constructor for the BitBoard object
+     * Converts an existing Board into its bitmask representation
+     *
+     * @param board
+     * The Board object to copy the state from
+     *
+     * @throws IllegalArgumentException
+     * Throws if the Board has more than 64 slots
+     */
+    public BitBoard(Board board) {
+        this(board.getWidth(), board.getHeight(), board.getWinLength());
+        for(int slot = 0; slot < this.layout.slots; slot++)
+            if(board.getPiece(slot) != null)
+                toggle(board.getPiece(slot), slot);
+
+        this.turn = board.getTurn();
+        this.winner = board.getWinner();
+        this.gameOver = board.isGameOver();
+    }
+
+    /**
+     * Utility constructor for the BitBoard object
+     * Only used for allowing BitBoard#createCopy to function properly
+     *
+     * @see BitBoard#createCopy()
+     *
+     * @param other
+     * The BitBoard object to copy attributes from
+     */
+    private BitBoard(BitBoard other) {
+        this.layout = other.layout;
+        this.keys = other.keys.clone();
+        this.xMask = other.xMask;
+        this.oMask = other.oMask;
+        this.index = other.index;
+        this.turn = other.turn;
+        this.winner = other.winner;
+        this.gameOver = other.gameOver;
+    }
+
+    /**
+     * Method abstracting the placement of a Piece
+     * Behaves exactly like Board#move(int)
+     *
+     * @see Board#move(int)
+     *
+     * @param slot
+     * The slot the pieces should be placed in
+     *
+     * @return
+     * Returns true if move was successfully made, else returns false
+     */
+    public boolean move(int slot) {
+        if(this.gameOver || slot < 0 || slot >= this.layout.slots || (getOpenSlots() & 1L << slot) == 0)
+            return false;
+
+        toggle(this.turn, slot);
+        if(getOpenSlots() == 0)
+            this.gameOver = true;
+
+        if(checkForWinner(slot)) {
+            this.gameOver = true;
+            this.winner = this.turn;
+        }
+
+        this.turn = this.turn == Board.Piece.X ? Board.Piece.O : Board.Piece.X;
+        return true;
+    }
+
+    /**
+     * Takes back the last move that was made
+     * Behaves exactly like Board#unmove(int)
+     *
+     * @see Board#unmove(int)
+     *
+     * @param slot
+     * The slot the last piece was placed in
+     *
+     * @return
+     * Returns true if the move was taken back, else returns false
+     */
+    public boolean unmove(int slot) {
+        final Board.Piece last = this.turn == Board.Piece.X ? Board.Piece.O : Board.Piece.X;
+        if(slot < 0 || slot >= this.layout.slots || (getMask(last) & 1L << slot) == 0)
+            return false;
+
+        toggle(last, slot);
+        this.turn = last;
+        this.winner = null;
+        this.gameOver = false;
+        return true;
+    }
+
+    /**
+     * Private helper method that flips the bit of a slot and updates the keys
+     * Placing and removing a piece are the same operation on the masks and
+     * keys, only the base 3 index has to know which way it goes
+     *
+     * @param piece
+     * The Piece enum to place or remove
+     *
+     * @param slot
+     * The slot to place the piece in or remove it from
+     */
+    private void toggle(Board.Piece piece, int slot) {
+        final int side = piece.ordinal();
+        final long bit = 1L << slot;
+        final boolean placing = ((this.xMask | this.oMask) & bit) == 0;
+        if(piece == Board.Piece.X) this.xMask ^= bit;
+        else this.oMask ^= bit;
+
+        if(this.layout.slots <= MAX_INDEXED_SLOTS)
+            this.index += placing ? (side + 1) * POW3[slot] : -(side + 1) * POW3[slot];
+
+        for(int s = 0; s < this.keys.length; s++)
+            this.keys[s] ^= this.layout.keys[side][this.layout.symmetry.apply(s, slot)];
+    }
+
+    /**
+     * Private helper method to check for a winner
+     * Only the lines through the last placed piece are tested, so the cost
+     * does not depend on the size of the board
+     *
+     * @param slot
+     * The slot the last piece was placed in
+     *
+     * @return
+     * Returns true if a winner was found, else returns false
+     */
+    private boolean checkForWinner(int slot) {
+        final long mask = getMask(this.turn);
+        for(long line : this.layout.lines[slot])
+            if((mask & line) == line)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Resets the BitBoard object to its original state
+     * This pretty much acts as creating a new BitBoard
+     */
+    public void reset() {
+        this.xMask = 0;
+        this.oMask = 0;
+        this.index = 0;
+        for(int s = 0; s < this.keys.length; s++)
+            this.keys[s] = this.layout.keys[0][this.layout.slots];
+
+        this.turn = Board.Piece.X;
+        this.winner = null;
+        this.gameOver = false;
+    }
+
+    /**
+     * Gets the Piece enum associated with a certain slot
+     *
+     * @see Board#getPiece(int)
+     *
+     * @param slot
+     * The slot that you want Piece enum for
+     *
+     * @return
+     * Returns the Piece enum on the provided slot
+     * If there is not Piece on the slot, returns null
+     */
+    public Board.Piece getPiece(int slot) {
+        if((this.xMask & 1L << slot) != 0) return Board.Piece.X;
+        if((this.oMask & 1L << slot) != 0) return Board.Piece.O;
+        return null;
+    }
+
+    /**
+     * Gets the bitmask of all slots owned by a player
+     *
+     * @param piece
+     * The Piece enum to get the bitmask for
+     *
+     * @return
+     * Returns a mask where bit n is set if the player owns slot n
+     */
+    public long getMask(Board.Piece piece) {
+        return piece == Board.Piece.X ? this.xMask : this.oMask;
+    }
+
+    /**
+     * Gets the bitmask of all open slots
+     * This method is mainly for the convenience of the AI
+     *
+     * @return
+     * Returns a mask where bit n is set if slot n is empty
+     */
+    public long getOpenSlots() {
+        return ~(this.xMask | this.oMask) & this.layout.full;
+    }
+
+    /**
+     * Gets the base 3 index of the position
+     * Slot n contributes 3^n for an X and 2 * 3^n for an O
+     * The index is kept up to date on every move so reading it is free
+     *
+     * @return
+     * Returns a unique number for the position, for a 3 by 3 board this is
+     * between 0 and 19,682
+     *
+     * @throws UnsupportedOperationException
+     * Throws if the board has more than 19 slots, since the index would not fit
+     */
+    public int getIndex() {
+        if(this.layout.slots > MAX_INDEXED_SLOTS)
+            throw new UnsupportedOperationException("Base 3 index needs at most " + MAX_INDEXED_SLOTS + " slots");
+
+        return this.index;
+    }
+
+    /**
+     * Gets a 64 bit key of the position after applying a symmetry
+     * Keys are Zobrist hashes that are updated on every move, and boards
+     * of different sizes use different random numbers
+     *
+     * @param symmetry
+     * The symmetry to apply
+     *
+     * @return
+     * Returns the key of the transformed position
+     */
+    public long getKey(int symmetry) {
+        return this.keys[symmetry];
+    }
+
+    /**
+     * Gets the symmetry that turns the position into its canonical form
+     * The canonical form is the variant with the lowest key
+     *
+     * @return
+     * Returns the symmetry to apply
+     */
+    public int getSymmetry() {
+        int best = Symmetry.IDENTITY;
+        for(int s = 1; s < this.keys.length; s++)
+            if(this.keys[s] < this.keys[best])
+                best = s;
+
+        return best;
+    }
+
+    /**
+     * Gets the key of the canonical form of the position
+     * All symmetric variants of a position share this key
+     *
+     * @return
+     * Returns the key of the canonical form
+     */
+    public long getCanonicalKey() {
+        return getKey(getSymmetry());
+    }
+
+    /**
+     * Gets the open slots with all symmetric duplicates removed
+     *
+     * @see Symmetry#uniqueSlots(long, long)
+     *
+     * @return
+     * Returns a mask of the distinct open slots
+     */
+    public long getUniqueSlots() {
+        return this.layout.symmetry.uniqueSlots(this.xMask, this.oMask);
+    }
+
+    /**
+     * Gets the amount of winning lines that go through a slot
+     * Slots on more lines are usually stronger, on a 3 by 3 board this
+     * ranks the center first, then the corners and then the edges
+     *
+     * @param slot
+     * The slot to count the lines of
+     *
+     * @return
+     * Returns the amount of winning lines through the slot
+     */
+    public int getLineCount(int slot) {
+        return this.layout.lines[slot].length;
+    }
+
+    /**
+     * Gets the symmetries of the board size
+     *
+     * @return
+     * Returns the shared Symmetry object for the board size
+     */
+    public Symmetry getSymmetries() {
+        return this.layout.symmetry;
+    }
+
+    /**
+     * Gets the amount of columns on the BitBoard
+     *
+     * @return
+     * Returns the width of the BitBoard
+     */
+    public int getWidth() {
+        return this.layout.width;
+    }
+
+    /**
+     * Gets the amount of rows on the BitBoard
+     *
+     * @return
+     * Returns the height of the BitBoard
+     */
+    public int getHeight() {
+        return this.layout.height;
+    }
+
+    /**
+     * Gets the amount of pieces in a row needed to win
+     *
+     * @return
+     * Returns the win length of the BitBoard
+     */
+    public int getWinLength() {
+        return this.layout.winLength;
+    }
+
+    /**
+     * Gets the current turn for the BitBoard
+     *
+     * @return
+     * Returns a Piece enum representing the player's piece
+     */
+    public Board.Piece getTurn() {
+        return this.turn;
+    }
+
+    /**
+     * Gets the current playing state of the game
+     *
+     * @return
+     * Returns true if the game has been completed, else returns false
+     */
+    public boolean isGameOver() {
+        return this.gameOver;
+    }
+
+    /**
+     * Gets the Piece enum representing the winning player
+     *
+     * @return
+     * Returns a Piece enum representing the winning player
+     */
+    public Board.Piece getWinner() {
+        return this.winner;
+    }
+
+    /**
+     * Creates a copy of BitBoard object
+     * Only the masks and keys are copied, the layout is shared
+     *
+     * @see BitBoard(BitBoard)
+     *
+     * @return
+     * Returns an exact copy of the BitBoard object
+     */
+    public BitBoard createCopy() {
+        return new BitBoard(this);
+    }
+
+    /**
+     * The String representation of the BitBoard object
+     * Uses the same layout as Board#toString()
+     *
+     * @see Board#toString()
+     *
+     * @return
+     * Returns a String representation of the BitBoard object
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        final String divider = String.join(" ", Collections.nCopies(getWidth(), "---"));
+        for (int y = 0; y < getHeight(); y++) {
+            sb.append(" ");
+            for (int x = 0; x < getWidth(); x++) {
+                final Board.Piece piece = getPiece(y * getWidth() + x);
+                sb.append(piece == null ? " " : piece.name());
+                sb.append(" | ");
+            }
+
+            sb.deleteCharAt(sb.length()-2);
+            if(y != getHeight() - 1) sb.append("\n").append(divider).append("\n");
+        }
+
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -7,12 +7,21 @@ import java.util.Set;
 /**
  * Class that represents a TicTacToe Board object
  * Acts as a wrapper to a 2D array of Piece enums
+ *
+ * The board can be any width and height and a player wins by getting
+ * a certain amount of pieces in a row, so a normal game is 3 by 3 with 3 in a row
  */
 public class Board {
 
     public enum Piece { X, O }
+    private static final int[][] DIRECTIONS = { {1, 0}, {0, 1}, {1, 1}, {1, -1} };
+
+    private final int width;
+    private final int height;
+    private final int winLength;
     private final Piece[][] board;
-    private final Set<Integer> availableMoves;
+
+    private int openSlots;
 
     private Piece turn;
     private Piece winner;
@@ -20,17 +29,80 @@ public class Board {
 
     /**
      * Default constructor for the Board object
-     * Initializes all variables to their default states
+     * Creates a normal 3 by 3 Board with 3 in a row
      */
     public Board() {
-        this.board = new Piece[3][3];
-        this.availableMoves = new HashSet<>();
+        this(3, 3, 3);
+    }
+
+    /**
+     * Constructor for a Board object of any size
+     * Initializes all variables to their default states
+     *
+     * @param width
+     * The amount of columns on the Board
+     *
+     * @param height
+     * The amount of rows on the Board
+     *
+     * @param winLength
+     * The amount of pieces in a row needed to win
+     *
+     * @throws IllegalArgumentException
+     * Throws if the Board has no slots or nobody could ever win
+     */
+    public Board(int width, int height, int winLength) {
+        if(width < 1 || height < 1)
+            throw new IllegalArgumentException("Board must have at least one slot");
+        if(winLength < 1 || winLength > Math.max(width, height))
+            throw new IllegalArgumentException("Win length must fit on the board");
+
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.board = new Piece[width][height];
+        this.openSlots = width * height;
         this.turn = Piece.X;
         this.winner = null;
         this.gameOver = false;
+    }
+
+    /**
+     * Utility constructor for the Board object
+     * Only used for allowing SessionStore to inflate a packed game
+     *
+     * @see SessionStore#get(int)
+     *
+     * @param width
+     * The amount of columns on the Board
+     *
+     * @param height
+     * The amount of rows on the Board
+     *
+     * @param winLength
+     * The amount of pieces in a row needed to win
+     *
+     * @param pieces
+     * The Piece enum on every slot, or null for an empty slot
+     *
+     * @param turn
+     * The Piece enum of the player to move
+     *
+     * @param winner
+     * The Piece enum of the winning player, or null if there is none
+     */
+    Board(int width, int height, int winLength, Piece[] pieces, Piece turn, Piece winner) {
+        this(width, height, winLength);
+        for(int slot = 0; slot < pieces.length; slot++) {
+            if(pieces[slot] != null) {
+                this.board[slot % width][slot / width] = pieces[slot];
+                this.openSlots--;
+            }
+        }
 
-        for(int i = 0; i < 9; i ++)
-            this.availableMoves.add(i);
+        this.turn = turn;
+        this.winner = winner;
+        this.gameOver = winner != null || this.openSlots == 0;
     }
 
     /**
@@ -43,11 +115,14 @@ public class Board {
      * The Board object to copy attributes from
      */
     private Board(Board other) {
-        this.board = new Piece[3][3];
-        for(int i = 0; i < 3; i++)
-            System.arraycopy(other.board[i], 0, this.board[i], 0, 3);
+        this.width = other.width;
+        this.height = other.height;
+        this.winLength = other.winLength;
+        this.board = new Piece[this.width][this.height];
+        for(int i = 0; i < this.width; i++)
+            System.arraycopy(other.board[i], 0, this.board[i], 0, this.height);
 
-        this.availableMoves = new HashSet<>(other.availableMoves);
+        this.openSlots = other.openSlots;
         this.turn = other.turn;
         this.winner = other.winner;
         this.gameOver = other.gameOver;
@@ -59,7 +134,7 @@ public class Board {
      *
      * @param slot
      * The slot the pieces should be placed in
-     * Slots are laid out on the board as follows:
+     * Slots are numbered row by row, so a 3 by 3 board is laid out as follows:
      *
      * 0 | 1 | 2
      * ---------
@@ -71,15 +146,15 @@ public class Board {
      * Returns true if move was successfully made, else returns false
      */
     public boolean move(int slot) {
-        if(this.gameOver || !this.availableMoves.contains(slot))
+        if(this.gameOver || slot < 0 || slot >= this.width * this.height || getPiece(slot) != null)
             return false;
 
-        this.availableMoves.remove(slot);
-        this.board[slot % 3][slot / 3] = this.turn;
-        if(this.availableMoves.isEmpty())
+        this.openSlots--;
+        this.board[slot % this.width][slot / this.width] = this.turn;
+        if(this.openSlots == 0)
             this.gameOver = true;
 
-        if(checkForWinner()) {
+        if(checkForWinner(slot)) {
             this.gameOver = true;
             this.winner = this.turn;
         }
@@ -88,41 +163,94 @@ public class Board {
         return true;
     }
 
+    /**
+     * Takes back the last move that was made
+     * Together with Board#move(int) this lets the AI walk the game tree on
+     * one Board instead of copying it for every position
+     *
+     * Moves have to be taken back in the reverse order they were made in,
+     * since only the last move can be undone without storing any history
+     *
+     * @see Board#move(int)
+     *
+     * @param slot
+     * The slot the last piece was placed in
+     *
+     * @return
+     * Returns true if the move was taken back, else returns false
+     */
+    public boolean unmove(int slot) {
+        final Piece last = this.turn == Piece.X ? Piece.O : Piece.X;
+        if(slot < 0 || slot >= this.width * this.height || getPiece(slot) != last)
+            return false;
+
+        // A move can only be made while the game is running, so undoing it always resumes the game
+        this.board[slot % this.width][slot / this.width] = null;
+        this.openSlots++;
+        this.turn = last;
+        this.winner = null;
+        this.gameOver = false;
+        return true;
+    }
+
     /**
      * Private helper method to check for a winner
-     * Uses the helper method checkLine() to be more efficient
+     * Only the lines through the last placed piece can have changed, so the
+     * cost does not depend on the size of the board
      *
-     * @see Board#checkLine(int...)
+     * @see Board#countLine(int, int, int, int)
+     *
+     * @param slot
+     * The slot the last piece was placed in
      *
      * @return
      * Returns true if a winner was found, else returns false
      */
-    private boolean checkForWinner() {
-        return checkLine(0,1,2) || checkLine(3,4,5) || checkLine(6,7,8) ||
-               checkLine(0,3,6) || checkLine(1,4,7) || checkLine(2,5,8) ||
-               checkLine(0,4,8) || checkLine(2,4,6);
+    private boolean checkForWinner(int slot) {
+        final int x = slot % this.width;
+        final int y = slot / this.width;
+        for(int[] direction : DIRECTIONS) {
+            final int count = 1 + countLine(x, y, direction[0], direction[1])
+                                + countLine(x, y, -direction[0], -direction[1]);
+            if(count >= this.winLength)
+                return true;
+        }
+
+        return false;
     }
 
     /**
      * Private helper method to check for a winner
-     * Checks a single individual line for a winning state
-     * Makes up a large part of Board#checkForWinner()
+     * Counts the pieces of the current player in a row from a slot
+     * Makes up a large part of Board#checkForWinner(int)
+     *
+     * @see Board#checkForWinner(int)
      *
-     * @see Board#checkForWinner()
+     * @param x
+     * The column to start from, this slot itself is not counted
      *
-     * @param slots
-     * The slots to check for a winner
-     * Precondition - There will always be 3 slots provided
+     * @param y
+     * The row to start from, this slot itself is not counted
+     *
+     * @param dx
+     * The step to take along the columns
+     *
+     * @param dy
+     * The step to take along the rows
      *
      * @return
-     * Returns true if all slots are filled by the same player, else returns false
+     * Returns how many pieces in a row the player has, stopping at the win length
      */
-    private boolean checkLine(int... slots) {
-        for(int slot : slots)
-            if(this.turn != getPiece(slot))
-                return false;
+    private int countLine(int x, int y, int dx, int dy) {
+        int count = 0;
+        for(x += dx, y += dy; count < this.winLength && x >= 0 && y >= 0 && x < this.width && y < this.height; x += dx, y += dy) {
+            if(this.board[x][y] != this.turn)
+                break;
+
+            count++;
+        }
 
-         return true;
+        return count;
     }
 
     /**
@@ -130,13 +258,11 @@ public class Board {
      * This pretty much acts as creating a new Board
      */
     public void reset() {
-        for(int i = 0; i < 3; i++)
-            for(int j = 0; j < 3; j++)
+        for(int i = 0; i < this.width; i++)
+            for(int j = 0; j < this.height; j++)
                 this.board[i][j] = null;
 
-        for(int i = 0; i < 9; i ++)
-            this.availableMoves.add(i);
-
+        this.openSlots = this.width * this.height;
         this.turn = Piece.X;
         this.winner = null;
         this.gameOver = false;
@@ -144,7 +270,7 @@ public class Board {
 
     /**
      * Gets the Piece enum associated with a certain slot
-     * Slots are laid out on the board as follows:
+     * Slots are numbered row by row, so a 3 by 3 board is laid out as follows:
      *
      * 0 | 1 | 2
      * ---------
@@ -160,7 +286,37 @@ public class Board {
      * If there is not Piece on the slot, returns null
      */
     public Piece getPiece(int slot) {
-        return this.board[slot % 3][slot / 3];
+        return this.board[slot % this.width][slot / this.width];
+    }
+
+    /**
+     * Gets the amount of columns on the Board
+     *
+     * @return
+     * Returns the width of the Board
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Gets the amount of rows on the Board
+     *
+     * @return
+     * Returns the height of the Board
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Gets the amount of pieces in a row needed to win
+     *
+     * @return
+     * Returns the win length of the Board
+     */
+    public int getWinLength() {
+        return this.winLength;
     }
 
     /**
@@ -168,7 +324,7 @@ public class Board {
      * This is a raw version of the Board and none of the data can be changed
      *
      * @return
-     * Returns a 3x3 2D array representing the raw instance of the Board
+     * Returns a 2D array indexed by column then row representing the raw instance of the Board
      */
     public Piece[][] getBoardRaw() {
         return this.board;
@@ -176,13 +332,51 @@ public class Board {
 
     /**
      * Gets a Set of Integers that holds all the open slots
-     * This method is mainly for the convenience of the AI
+     * The Set is built on every call, so searches should walk the open
+     * slots with Board#getNextSlot(int) instead
+     *
+     * @see Board#getNextSlot(int)
      *
      * @return
      * Returns an unmodifiable Set of Integers representing empty slots
      */
     public Set<Integer> getAvailableSlots() {
-        return Collections.unmodifiableSet(this.availableMoves);
+        final Set<Integer> slots = new HashSet<>();
+        for(int slot = getNextSlot(0); slot >= 0; slot = getNextSlot(slot + 1))
+            slots.add(slot);
+
+        return Collections.unmodifiableSet(slots);
+    }
+
+    /**
+     * Gets the first open slot at or after a slot
+     * Lets the open slots be walked without allocating anything:
+     *
+     * for(int slot = board.getNextSlot(0); slot >= 0; slot = board.getNextSlot(slot + 1))
+     *
+     * @param from
+     * The slot to start looking from
+     *
+     * @return
+     * Returns the first open slot that is not lower than from
+     * Returns -1 if there is no such slot
+     */
+    public int getNextSlot(int from) {
+        for(int slot = Math.max(from, 0); slot < this.width * this.height; slot++)
+            if(getPiece(slot) == null)
+                return slot;
+
+        return -1;
+    }
+
+    /**
+     * Gets the amount of open slots
+     *
+     * @return
+     * Returns how many slots have no Piece on them
+     */
+    public int getOpenSlotCount() {
+        return this.openSlots;
     }
 
     /**
@@ -215,6 +409,113 @@ public class Board {
         return this.winner;
     }
 
+    /**
+     * Gets the symmetry that turns the Board into its canonical form
+     * Slots chosen on the canonical form are mapped back with Symmetry#invert(int, int)
+     * Boards too large for a BitBoard pick the image whose slots come first
+     * when compared one by one instead
+     *
+     * @see BitBoard#getSymmetry()
+     *
+     * @return
+     * Returns the symmetry to apply
+     */
+    public int getSymmetry() {
+        if(this.width * this.height <= BitBoard.MAX_SLOTS)
+            return new BitBoard(this).getSymmetry();
+
+        final Symmetry symmetries = Symmetry.of(this.width, this.height);
+        int best = Symmetry.IDENTITY;
+        for(int s = 1; s < symmetries.count(); s++)
+            if(compareImages(symmetries, s, best) < 0)
+                best = s;
+
+        return best;
+    }
+
+    /**
+     * Gets the key of the canonical form of the Board
+     * All symmetric variants of a position share this key
+     * Boards too large for a BitBoard get a hash of their canonical slots,
+     * which is not comparable with the keys of a BitBoard
+     *
+     * @see BitBoard#getCanonicalKey()
+     *
+     * @return
+     * Returns the key of the canonical form
+     */
+    public long getCanonicalKey() {
+        if(this.width * this.height <= BitBoard.MAX_SLOTS)
+            return new BitBoard(this).getCanonicalKey();
+
+        final Symmetry symmetries = Symmetry.of(this.width, this.height);
+        final int symmetry = getSymmetry();
+        long key = 0xCBF29CE484222325L;
+        for(int slot = 0; slot < this.width * this.height; slot++)
+            key = (key ^ code(getPiece(symmetries.invert(symmetry, slot)))) * 0x100000001B3L;
+
+        return key;
+    }
+
+    /**
+     * Creates a copy of the Board rotated or reflected into its canonical form
+     *
+     * @see Board#getSymmetry()
+     *
+     * @return
+     * Returns the canonical form of the Board
+     */
+    public Board createCanonicalCopy() {
+        final int symmetry = getSymmetry();
+        final Symmetry symmetries = Symmetry.of(this.width, this.height);
+        final Board copy = new Board(this);
+        for(int slot = 0; slot < this.width * this.height; slot++) {
+            final int image = symmetries.apply(symmetry, slot);
+            copy.board[image % this.width][image / this.width] = getPiece(slot);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Private helper method that compares two images of the Board slot by slot
+     *
+     * @param symmetries
+     * The Symmetry of the board size
+     *
+     * @param a
+     * The symmetry of the first image
+     *
+     * @param b
+     * The symmetry of the second image
+     *
+     * @return
+     * Returns a negative number if the first image comes first, a positive
+     * number if the second one does and 0 if they are the same
+     */
+    private int compareImages(Symmetry symmetries, int a, int b) {
+        for(int slot = 0; slot < this.width * this.height; slot++) {
+            final int diff = code(getPiece(symmetries.invert(a, slot))) - code(getPiece(symmetries.invert(b, slot)));
+            if(diff != 0)
+                return diff;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Private helper method that numbers the contents of a slot
+     *
+     * @param piece
+     * The Piece enum in the slot, or null if it is empty
+     *
+     * @return
+     * Returns 0 for an empty slot, 1 for X and 2 for O
+     */
+    private static int code(Piece piece) {
+        return piece == null ? 0 : piece.ordinal() + 1;
+    }
+
     /**
      * Creates a copy of Board object
      * This method makes use of the utility constructor for the Board object
@@ -231,7 +532,7 @@ public class Board {
 
     /**
      * The String representation of the Board object
-     * Slots are laid out on the board as follows:
+     * Slots are numbered row by row, so a 3 by 3 board is laid out as follows:
      *
      * 0 | 1 | 2
      * ---------
@@ -245,16 +546,17 @@ public class Board {
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
-        for (int y = 0; y < 3; y++) {
+        final String divider = String.join(" ", Collections.nCopies(this.width, "---"));
+        for (int y = 0; y < this.height; y++) {
             sb.append(" ");
-            for (int x = 0; x < 3; x++) {
+            for (int x = 0; x < this.width; x++) {
                 if(this.board[x][y] == null) sb.append(" ");
                 else sb.append(this.board[x][y].name());
                 sb.append(" | ");
             }
 
             sb.deleteCharAt(sb.length()-2);
-            if(y != 2) sb.append("\n--- --- ---\n");
+            if(y != this.height - 1) sb.append("\n").append(divider).append("\n");
         }
 
         return sb.toString();
@@ -0,0 +1,231 @@
+package game;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Class that paints a 3 by 3 Board onto any Graphics object at any size
+ * Works without a user interface, so boards can also be painted headlessly
+ *
+ * Everything that does not depend on the position is prepared once per
+ * size: the board and pieces are scaled ahead of time, together with a copy
+ * tinted in the color of each winner, and only prepared again when the
+ * size changes
+ */
+public class BoardRenderer {
+
+    public static final int SIZE = 900;
+
+    private static final int CELL = 290;
+    private static final int OFFSET = 60;
+    private static final int SLOTS = 9;
+    private static final Font FONT = new Font("helvetica", Font.BOLD, 60);
+    private static final Color[] COLORS = { Color.decode("#e25043"), Color.decode("#1bbc9b") };
+
+    /**
+     * The board and piece images prepared for one size
+     * Variant 0 is the plain look, variant 1 + n is tinted for a win of Piece n
+     */
+    private static class Sprites {
+
+        private final int size;
+        private final Font font;
+        private final BufferedImage[] boards;
+        private final BufferedImage[][] pieces;
+
+        /**
+         * Constructor for the Sprites object
+         * Scales and tints every image for the size
+         *
+         * @param size
+         * The width and height the board is drawn at
+         *
+         * @param board
+         * The image of the empty board
+         *
+         * @param x
+         * The image of an X at a board size of SIZE
+         *
+         * @param o
+         * The image of an O at a board size of SIZE
+         */
+        private Sprites(int size, BufferedImage board, BufferedImage x, BufferedImage o) {
+            this.size = size;
+            this.font = FONT.deriveFont(FONT.getSize2D() * size / SIZE);
+            this.boards = new BufferedImage[COLORS.length + 1];
+            this.pieces = new BufferedImage[COLORS.length + 1][];
+            for(int variant = 0; variant <= COLORS.length; variant++) {
+                final Color tint = variant == 0 ? null : COLORS[variant - 1];
+                this.boards[variant] = prepare(board, size, size, tint);
+                this.pieces[variant] = new BufferedImage[] {
+                        prepare(x, scale(x.getWidth()), scale(x.getHeight()), tint),
+                        prepare(o, scale(o.getWidth()), scale(o.getHeight()), tint)
+                };
+            }
+        }
+
+        /**
+         * Scales a length from a board size of SIZE to the size of the Sprites
+         *
+         * @param length
+         * The length at a board size of SIZE
+         *
+         * @return
+         * Returns the length at the size of the Sprites, at least 1
+         */
+        private int scale(int length) {
+            return Math.max(1, length * this.size / SIZE);
+        }
+
+        /**
+         * Draws a piece in its slot
+         *
+         * @param g
+         * The Graphics object to draw with
+         *
+         * @param variant
+         * The variant of the piece image to draw
+         *
+         * @param piece
+         * The Piece enum to draw
+         *
+         * @param slot
+         * The slot to draw the piece in
+         */
+        private void drawPiece(Graphics2D g, int variant, Board.Piece piece, int slot) {
+            g.drawImage(this.pieces[variant][piece.ordinal()], scale(slot % 3 * CELL + OFFSET), scale(slot / 3 * CELL + OFFSET), null);
+        }
+    }
+
+    private final BufferedImage board;
+    private final BufferedImage x;
+    private final BufferedImage o;
+    private Sprites scaled;
+
+    /**
+     * Default constructor for the BoardRenderer object
+     * The images are prepared the first time a Board is painted
+     *
+     * @param board
+     * The image of the empty board, scaled to SIZE by SIZE
+     *
+     * @param x
+     * The image of an X, drawn at its own size
+     *
+     * @param o
+     * The image of an O, drawn at its own size
+     */
+    public BoardRenderer(BufferedImage board, BufferedImage x, BufferedImage o) {
+        this.board = board;
+        this.x = x;
+        this.o = o;
+    }
+
+    /**
+     * Paints a Board straight onto a Graphics object at any size
+     * Meant for painting a component, where the images are prepared again
+     * only when the size differs from the last call
+     *
+     * @param g
+     * The Graphics object to paint with, the board is painted at its origin
+     *
+     * @param board
+     * The Board to paint, must be a normal 3 by 3 Board
+     *
+     * @param size
+     * The width and height to paint the board at
+     */
+    public void paint(Graphics2D g, Board board, int size) {
+        if(size < 1)
+            return;
+
+        Sprites sprites = this.scaled;
+        if(sprites == null || sprites.size != size) {
+            sprites = new Sprites(size, this.board, this.x, this.o);
+            this.scaled = sprites;
+        }
+
+        final int variant = variant(board);
+        g.drawImage(sprites.boards[variant], 0, 0, null);
+        for(int slot = 0; slot < SLOTS; slot++)
+            if(board.getPiece(slot) != null)
+                sprites.drawPiece(g, variant, board.getPiece(slot), slot);
+
+        if(board.isGameOver()) {
+            g.setColor(Color.WHITE);
+            g.setFont(sprites.font);
+            drawMessage(g, board, size);
+        }
+    }
+
+    /**
+     * Private helper method to get the look a Board is drawn with
+     *
+     * @param board
+     * The Board to draw
+     *
+     * @return
+     * Returns 0 for the plain look, or 1 + n when Piece n won
+     */
+    private static int variant(Board board) {
+        return board.getWinner() == null ? 0 : board.getWinner().ordinal() + 1;
+    }
+
+    /**
+     * Private helper method that draws the result in the middle of the board
+     *
+     * @param g
+     * The Graphics object to draw with, with the font already set
+     *
+     * @param board
+     * The finished Board
+     *
+     * @param size
+     * The width and height the board is drawn at
+     */
+    private static void drawMessage(Graphics2D g, Board board, int size) {
+        final String msg = board.getWinner() == null ? "Draw" : board.getWinner().name() + " Wins";
+        final FontMetrics metrics = g.getFontMetrics();
+        g.drawString(msg, size / 2 - metrics.stringWidth(msg) / 2, size / 2 + metrics.getAscent() - metrics.getHeight() / 2);
+    }
+
+    /**
+     * Private helper method that scales an image and optionally tints it
+     * Every pixel with a lot of green is replaced by the tint color, which
+     * turns the light parts of the board into the color of the winner
+     *
+     * @param img
+     * The image to prepare
+     *
+     * @param width
+     * The width to scale the image to
+     *
+     * @param height
+     * The height to scale the image to
+     *
+     * @param tint
+     * The Color to tint with, or null to only scale
+     *
+     * @return
+     * Returns the prepared image
+     */
+    private static BufferedImage prepare(BufferedImage img, int width, int height, Color tint) {
+        final BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = out.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.drawImage(img, 0, 0, width, height, null);
+        g.dispose();
+        if(tint == null)
+            return out;
+
+        final int[] pixels = out.getRGB(0, 0, width, height, null, 0, width);
+        for(int i = 0; i < pixels.length; i++) {
+            final int alpha = pixels[i] >>> 24;
+            if(alpha != 0 && ((pixels[i] >> 8) & 0xFF) > 200)
+                pixels[i] = alpha << 24 | (tint.getRGB() & 0xFFFFFF);
+        }
+
+        out.setRGB(0, 0, width, height, pixels, 0, width);
+        return out;
+    }
+}
@@ -0,0 +1,234 @@
+package game;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Class that holds a whole game as the list of slots that were played
+ * Together with the board size and the engines that played it, this is
+ * enough to rebuild every position of the game
+ *
+ * @see RecordWriter
+ * @see RecordReader
+ */
+public class GameRecord {
+
+    private final int width;
+    private final int height;
+    private final int winLength;
+    private final String xEngine;
+    private final String oEngine;
+    private final int[] moves;
+    private final boolean finished;
+    private final Board.Piece winner;
+
+    /**
+     * Default constructor for the GameRecord object
+     * The moves are played out once to check them and find the result
+     *
+     * @param width
+     * The amount of columns on the Board
+     *
+     * @param height
+     * The amount of rows on the Board
+     *
+     * @param winLength
+     * How many pieces in a row are needed to win
+     *
+     * @param xEngine
+     * The name of whatever played X, such as a strategy name or human
+     *
+     * @param oEngine
+     * The name of whatever played O
+     *
+     * @param moves
+     * The slots in the order they were played, copied
+     *
+     * @throws IllegalArgumentException
+     * Throws if the board is too large to record, an engine is missing or a move is illegal
+     */
+    public GameRecord(int width, int height, int winLength, String xEngine, String oEngine, int[] moves) {
+        if(width > 0xFF || height > 0xFF || width * height > 0xFF)
+            throw new IllegalArgumentException("Only boards with up to 255 slots can be recorded");
+        if(xEngine == null || oEngine == null)
+            throw new IllegalArgumentException("Both engines need a name");
+
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.xEngine = xEngine;
+        this.oEngine = oEngine;
+        this.moves = moves.clone();
+
+        final Board board = replay(this.moves.length);
+        this.finished = board.isGameOver();
+        this.winner = board.getWinner();
+    }
+
+    /**
+     * Gets the position after a number of moves
+     *
+     * @param plies
+     * How many of the recorded moves to play, at most the amount of moves
+     *
+     * @return
+     * Returns a new Board in the position after that many moves
+     *
+     * @throws IllegalArgumentException
+     * Throws if one of the moves is illegal
+     */
+    public Board replay(int plies) {
+        final Board board = new Board(this.width, this.height, this.winLength);
+        for(int i = 0; i < plies; i++)
+            if(!board.move(this.moves[i]))
+                throw new IllegalArgumentException("Move " + i + " to slot " + this.moves[i] + " is illegal");
+
+        return board;
+    }
+
+    /**
+     * Plays the game from the start and shows every position along the way
+     * The same Board is passed every time, first empty and then after every move
+     *
+     * @param visitor
+     * Called with the Board in every position, must not change it
+     */
+    public void replay(Consumer<Board> visitor) {
+        final Board board = new Board(this.width, this.height, this.winLength);
+        visitor.accept(board);
+        for(int move : this.moves) {
+            board.move(move);
+            visitor.accept(board);
+        }
+    }
+
+    /**
+     * Gets the amount of columns
+     *
+     * @return
+     * Returns the width of the Board
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Gets the amount of rows
+     *
+     * @return
+     * Returns the height of the Board
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Gets how many pieces in a row are needed to win
+     *
+     * @return
+     * Returns the win length of the Board
+     */
+    public int getWinLength() {
+        return this.winLength;
+    }
+
+    /**
+     * Gets the name of whatever played a Piece
+     *
+     * @param piece
+     * The Piece enum to get the engine of
+     *
+     * @return
+     * Returns the engine name
+     */
+    public String getEngine(Board.Piece piece) {
+        return piece == Board.Piece.X ? this.xEngine : this.oEngine;
+    }
+
+    /**
+     * Gets the amount of moves played
+     *
+     * @return
+     * Returns the length of the game
+     */
+    public int getMoveCount() {
+        return this.moves.length;
+    }
+
+    /**
+     * Gets a move of the game
+     *
+     * @param ply
+     * The number of the move, starting at 0
+     *
+     * @return
+     * Returns the slot played
+     */
+    public int getMove(int ply) {
+        return this.moves[ply];
+    }
+
+    /**
+     * Checks if the game was played to the end
+     *
+     * @return
+     * Returns true if the last move ended the game, else returns false
+     */
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    /**
+     * Gets the winner of the game
+     *
+     * @return
+     * Returns the Piece enum that won, or null for a draw or unfinished game
+     */
+    public Board.Piece getWinner() {
+        return this.winner;
+    }
+
+    /**
+     * Checks if two records hold the same game played by the same engines
+     *
+     * @param o
+     * The object to compare with
+     *
+     * @return
+     * Returns true if the records are equal, else returns false
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof GameRecord))
+            return false;
+
+        final GameRecord other = (GameRecord)o;
+        return this.width == other.width && this.height == other.height && this.winLength == other.winLength
+                && this.xEngine.equals(other.xEngine) && this.oEngine.equals(other.oEngine)
+                && Arrays.equals(this.moves, other.moves);
+    }
+
+    /**
+     * Gets a hash code matching GameRecord#equals(Object)
+     *
+     * @return
+     * Returns the hash code of the record
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(this.moves) + this.xEngine.hashCode() * 7 + this.oEngine.hashCode() + this.width * this.height;
+    }
+
+    /**
+     * The String representation of the GameRecord object
+     *
+     * @return
+     * Returns the size, engines, result and moves on one line
+     */
+    @Override
+    public String toString() {
+        final String result = !this.finished ? "unfinished" : this.winner == null ? "draw" : this.winner.name() + " wins";
+        return this.width + "x" + this.height + "/" + this.winLength + " " + this.xEngine + " vs " + this.oEngine
+                + " " + result + " " + Arrays.toString(this.moves);
+    }
+}
@@ -0,0 +1,276 @@
+package game;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that reads GameRecords back from a channel one at a time
+ * Only a small buffer is kept in memory, so files with millions of games
+ * can be scanned from start to end
+ *
+ * @see RecordWriter for the format
+ */
+public class RecordReader implements Closeable {
+
+    private static final int BUFFER = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final String[] engines;
+    private boolean end;
+
+    /**
+     * Default constructor for the RecordReader object
+     * Reads and checks the stream header right away
+     *
+     * @param channel
+     * The channel to read from, closed together with the reader
+     *
+     * @throws IOException
+     * Throws if the header could not be read or does not match
+     */
+    public RecordReader(ReadableByteChannel channel) throws IOException {
+        readHeader(channel);
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER);
+        this.buffer.flip();
+        this.engines = new String[RecordWriter.MAX_ENGINES];
+    }
+
+    /**
+     * Opens a file to read records from
+     *
+     * @param file
+     * The path of the file
+     *
+     * @return
+     * Returns a RecordReader positioned at the first record
+     *
+     * @throws IOException
+     * Throws if the file could not be opened or is not a record file
+     */
+    public static RecordReader open(Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new RecordReader(channel);
+        }catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next game of the stream
+     *
+     * @return
+     * Returns the next GameRecord, or null once the stream has ended
+     *
+     * @throws IOException
+     * Throws if the channel could not be read or the stream is corrupt
+     */
+    public GameRecord next() throws IOException {
+        while(fill(1)) {
+            final int tag = this.buffer.get();
+            if(tag == RecordWriter.ENGINE) {
+                require(2);
+                final int id = unsigned();
+                final int length = unsigned();
+                require(length);
+
+                final byte[] name = new byte[length];
+                this.buffer.get(name);
+                this.engines[id] = new String(name, StandardCharsets.US_ASCII);
+            }else if(tag == RecordWriter.GAME) {
+                return readGame();
+            }else {
+                throw new IOException("Unknown entry " + tag);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Closes the channel
+     *
+     * @throws IOException
+     * Throws if the channel could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Private helper method that reads the rest of a game entry
+     *
+     * @return
+     * Returns the GameRecord of the entry
+     *
+     * @throws IOException
+     * Throws if the channel could not be read or the entry is corrupt
+     */
+    private GameRecord readGame() throws IOException {
+        require(7);
+        final int width = unsigned();
+        final int height = unsigned();
+        final int winLength = unsigned();
+        final String xEngine = this.engines[unsigned()];
+        final String oEngine = this.engines[unsigned()];
+        final int status = unsigned();
+        final int count = unsigned();
+        if(xEngine == null || oEngine == null)
+            throw new IOException("Game refers to an engine that was never defined");
+
+        final int[] moves = new int[count];
+        if(width * height <= RecordWriter.PACKED_SLOTS) {
+            require((count + 1) / 2);
+            for(int i = 0; i < count; i += 2) {
+                final int pair = unsigned();
+                moves[i] = pair & 0xF;
+                if(i + 1 < count)
+                    moves[i + 1] = pair >>> 4;
+            }
+        }else {
+            require(count);
+            for(int i = 0; i < count; i++)
+                moves[i] = unsigned();
+        }
+
+        final GameRecord record;
+        try {
+            record = new GameRecord(width, height, winLength, xEngine, oEngine, moves);
+        }catch(IllegalArgumentException e) {
+            throw new IOException("Corrupt game: " + e.getMessage(), e);
+        }
+
+        final int expected = !record.isFinished() ? 0 : record.getWinner() == null ? 3 : record.getWinner().ordinal() + 1;
+        if(status != expected)
+            throw new IOException("Recorded result does not match the moves of " + record);
+
+        return record;
+    }
+
+    /**
+     * Private helper method to read one unsigned byte from the buffer
+     *
+     * @return
+     * Returns the byte as a number between 0 and 255
+     */
+    private int unsigned() {
+        return this.buffer.get() & 0xFF;
+    }
+
+    /**
+     * Private helper method that makes sure the rest of an entry is buffered
+     *
+     * @param bytes
+     * How many bytes the entry still needs
+     *
+     * @throws IOException
+     * Throws if the channel could not be read or ended in the middle of an entry
+     */
+    private void require(int bytes) throws IOException {
+        if(!fill(bytes))
+            throw new EOFException("Stream ends in the middle of an entry");
+    }
+
+    /**
+     * Private helper method that reads from the channel until enough bytes are buffered
+     *
+     * @param bytes
+     * How many bytes should be buffered, at most the size of the buffer
+     *
+     * @return
+     * Returns true if the bytes are buffered, false if the stream ended first
+     *
+     * @throws IOException
+     * Throws if the channel could not be read
+     */
+    private boolean fill(int bytes) throws IOException {
+        if(this.buffer.remaining() >= bytes)
+            return true;
+
+        this.buffer.compact();
+        while(!this.end && this.buffer.position() < bytes)
+            this.end = this.channel.read(this.buffer) < 0;
+
+        this.buffer.flip();
+        return this.buffer.remaining() >= bytes;
+    }
+
+    /**
+     * Helper method that reads and checks the header at the start of a stream
+     *
+     * @param channel
+     * The channel positioned at the start of the stream
+     *
+     * @throws IOException
+     * Throws if the header could not be read or does not match
+     */
+    static void readHeader(ReadableByteChannel channel) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(RecordWriter.HEADER);
+        while(header.hasRemaining())
+            if(channel.read(header) < 0)
+                throw new EOFException("Stream ends before the header");
+
+        header.flip();
+        if(header.getInt() != RecordWriter.MAGIC)
+            throw new IOException("Not a game record stream");
+        if(header.get() != RecordWriter.VERSION)
+            throw new IOException("Unsupported game record version");
+    }
+
+    /**
+     * Scans a record file and prints a summary, or replays a single game
+     *
+     * @param args
+     * The path of the file and optionally the number of a game to replay,
+     * starting at 0
+     *
+     * @throws IOException
+     * Throws if the file could not be read or is corrupt
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.out.println("Usage: RecordReader <file> [game]");
+            return;
+        }
+
+        final long show = args.length > 1 ? Long.parseLong(args[1]) : -1;
+        final long start = System.nanoTime();
+        long games = 0, moves = 0, xWins = 0, oWins = 0, draws = 0;
+        try(RecordReader reader = open(Paths.get(args[0]))) {
+            for(GameRecord record = reader.next(); record != null; record = reader.next(), games++) {
+                if(games == show) {
+                    System.out.println(record);
+                    record.replay(board -> System.out.println(board + System.lineSeparator()));
+                    return;
+                }
+
+                moves += record.getMoveCount();
+                if(!record.isFinished()) continue;
+                if(record.getWinner() == Board.Piece.X) xWins++;
+                else if(record.getWinner() == Board.Piece.O) oWins++;
+                else draws++;
+            }
+        }
+
+        if(show >= 0) {
+            System.out.println("The file only holds " + games + " games");
+            return;
+        }
+
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("games=%d X=%d O=%d draw=%d unfinished=%d moves/game=%.2f games/s=%.0f%n", games, xWins, oWins,
+                          draws, games - xWins - oWins - draws, moves / (double)Math.max(games, 1), games / seconds);
+    }
+}
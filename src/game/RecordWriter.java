@@ -0,0 +1,239 @@
+package game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class that writes GameRecords to a channel in a compact binary format
+ * Records are collected in a buffer and written in large blocks, so
+ * millions of games can be streamed out without keeping them in memory
+ *
+ * A stream starts with a magic number and a version byte, followed by
+ * entries that each start with a tag byte:
+ *
+ * ENGINE  id, name length, name in ASCII
+ * GAME    width, height, win length, X engine id, O engine id, status,
+ *         move count, moves
+ *
+ * Every field is one unsigned byte. Engine names are defined once and then
+ * referred to by id, and an id can be defined again later
+ * The status is 0 for an unfinished game, 1 if X won, 2 if O won and 3 for
+ * a draw. Boards with at most 16 slots store two moves per byte, low 4 bits
+ * first, and larger boards store one move per byte
+ * A finished 3 by 3 game takes at most 13 bytes
+ *
+ * @see RecordReader
+ */
+public class RecordWriter implements Closeable {
+
+    static final int MAGIC = 0x54545452;
+    static final int VERSION = 1;
+    static final int HEADER = 5;
+    static final int ENGINE = 0;
+    static final int GAME = 1;
+    static final int MAX_ENGINES = 256;
+    static final int PACKED_SLOTS = 16;
+
+    private static final int BUFFER = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> engines;
+    private long games;
+
+    /**
+     * Default constructor for the RecordWriter object
+     * Writes the stream header right away
+     *
+     * @param channel
+     * The channel to write to, closed together with the writer
+     *
+     * @throws IOException
+     * Throws if the header could not be written
+     */
+    public RecordWriter(WritableByteChannel channel) throws IOException {
+        this(channel, true);
+    }
+
+    /**
+     * Private constructor for a RecordWriter object that may skip the header
+     *
+     * @param channel
+     * The channel to write to, closed together with the writer
+     *
+     * @param header
+     * True to write the stream header, false when appending to a stream
+     *
+     * @throws IOException
+     * Throws if the header could not be written
+     */
+    private RecordWriter(WritableByteChannel channel, boolean header) throws IOException {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER);
+        this.engines = new HashMap<>();
+        if(header) {
+            this.buffer.putInt(MAGIC).put((byte)VERSION);
+            flush();
+        }
+    }
+
+    /**
+     * Opens a file to add records to the end of
+     * The file is created with a header if it does not exist yet
+     *
+     * @param file
+     * The path of the file
+     *
+     * @return
+     * Returns a RecordWriter that appends to the file
+     *
+     * @throws IOException
+     * Throws if the file could not be opened or is not a record file
+     */
+    public static RecordWriter append(Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final boolean empty = channel.size() == 0;
+            if(!empty)
+                RecordReader.readHeader(channel);
+
+            channel.position(channel.size());
+            return new RecordWriter(channel, empty);
+        }catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a game to the stream
+     * Safe to call from several threads at once
+     *
+     * @param record
+     * The GameRecord to write
+     *
+     * @throws IOException
+     * Throws if the buffer could not be written to the channel
+     */
+    public synchronized void write(GameRecord record) throws IOException {
+        final int xEngine = getEngine(record.getEngine(Board.Piece.X));
+        final int oEngine = getEngine(record.getEngine(Board.Piece.O));
+        final int count = record.getMoveCount();
+        final boolean packed = record.getWidth() * record.getHeight() <= PACKED_SLOTS;
+        ensure(8 + count);
+
+        final int status = !record.isFinished() ? 0 : record.getWinner() == null ? 3 : record.getWinner().ordinal() + 1;
+        this.buffer.put((byte)GAME)
+                   .put((byte)record.getWidth())
+                   .put((byte)record.getHeight())
+                   .put((byte)record.getWinLength())
+                   .put((byte)xEngine)
+                   .put((byte)oEngine)
+                   .put((byte)status)
+                   .put((byte)count);
+
+        if(packed) {
+            for(int i = 0; i < count; i += 2)
+                this.buffer.put((byte)(record.getMove(i) | (i + 1 < count ? record.getMove(i + 1) << 4 : 0)));
+        }else {
+            for(int i = 0; i < count; i++)
+                this.buffer.put((byte)record.getMove(i));
+        }
+
+        this.games++;
+    }
+
+    /**
+     * Gets the amount of games written by this writer
+     *
+     * @return
+     * Returns the amount of games written
+     */
+    public synchronized long getGameCount() {
+        return this.games;
+    }
+
+    /**
+     * Writes everything in the buffer to the channel
+     *
+     * @throws IOException
+     * Throws if the channel could not be written to
+     */
+    public synchronized void flush() throws IOException {
+        this.buffer.flip();
+        while(this.buffer.hasRemaining())
+            this.channel.write(this.buffer);
+
+        this.buffer.clear();
+    }
+
+    /**
+     * Flushes the buffer and closes the channel
+     *
+     * @throws IOException
+     * Throws if the buffer could not be written or the channel not closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        }finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Private helper method to get the id of an engine
+     * Defines the engine in the stream the first time it is seen, and starts
+     * handing out ids from 0 again once every id is taken
+     *
+     * @param name
+     * The name of the engine
+     *
+     * @return
+     * Returns the id the engine has in the stream
+     *
+     * @throws IOException
+     * Throws if the buffer could not be written to the channel
+     */
+    private int getEngine(String name) throws IOException {
+        final Integer known = this.engines.get(name);
+        if(known != null)
+            return known;
+
+        final byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        if(bytes.length > 0xFF)
+            throw new IllegalArgumentException("Engine name is too long: " + name);
+
+        if(this.engines.size() == MAX_ENGINES)
+            this.engines.clear();
+
+        final int id = this.engines.size();
+        ensure(3 + bytes.length);
+        this.buffer.put((byte)ENGINE).put((byte)id).put((byte)bytes.length).put(bytes);
+        this.engines.put(name, id);
+        return id;
+    }
+
+    /**
+     * Private helper method that makes room in the buffer
+     *
+     * @param bytes
+     * How many bytes are about to be written
+     *
+     * @throws IOException
+     * Throws if the buffer could not be written to the channel
+     */
+    private void ensure(int bytes) throws IOException {
+        if(this.buffer.remaining() < bytes)
+            flush();
+    }
+}
@@ -0,0 +1,289 @@
+package game;
+
+/**
+ * Class that keeps a large amount of 3 by 3 games in one int array
+ * A game only takes 4 bytes while it is stored, and is inflated into a
+ * Board when it is needed and packed again after it changed
+ *
+ * Every game is packed into a single int:
+ * Bits 0-17 hold 2 bits for every slot, 0 for empty, 1 for X and 2 for O
+ * Bit 18 is set when O is to move
+ * Bits 19-20 hold the status, 0 while playing, 1 if X won, 2 if O won and 3 for a draw
+ * Bit 30 is set while the id is in use
+ *
+ * Ids that are not in use form a free list through the same array, so the
+ * store needs no memory besides the array itself
+ * Games are guarded by a fixed amount of locks, so games that do not share
+ * a lock can be changed at the same time
+ */
+public class SessionStore {
+
+    private static final int SIZE = 3;
+    private static final int SLOTS = SIZE * SIZE;
+    private static final int STRIPES = 64;
+
+    private static final int TURN = 1 << 18;
+    private static final int STATUS_SHIFT = 19;
+    private static final int PLAYING = 0;
+    private static final int DRAW = 3;
+    private static final int USED = 1 << 30;
+    private static final int END = USED - 1;
+
+    private final int[] games;
+    private final Object[] locks;
+    private final Object freeLock;
+
+    private int free;
+    private int size;
+
+    /**
+     * Default constructor for the SessionStore object
+     *
+     * @param capacity
+     * The most games the store can hold at the same time
+     *
+     * @throws IllegalArgumentException
+     * Throws if the capacity is not positive or too large
+     */
+    public SessionStore(int capacity) {
+        if(capacity < 1 || capacity >= END)
+            throw new IllegalArgumentException("Capacity must be between 1 and " + (END - 1));
+
+        this.games = new int[capacity];
+        this.locks = new Object[STRIPES];
+        this.freeLock = new Object();
+        for(int i = 0; i < STRIPES; i++)
+            this.locks[i] = new Object();
+
+        for(int id = 0; id < capacity; id++)
+            this.games[id] = id + 1 < capacity ? id + 1 : END;
+    }
+
+    /**
+     * Creates a new game on an empty Board
+     * Ids of removed games are handed out again
+     *
+     * @return
+     * Returns the id of the new game
+     *
+     * @throws IllegalStateException
+     * Throws if the store is full
+     */
+    public int create() {
+        final int id;
+        synchronized(this.freeLock) {
+            if(this.free == END)
+                throw new IllegalStateException("Session store is full");
+
+            id = this.free;
+            this.free = this.games[id];
+            this.size++;
+        }
+
+        synchronized(lock(id)) {
+            this.games[id] = USED;
+        }
+
+        return id;
+    }
+
+    /**
+     * Inflates a game into a Board
+     * Changes to the Board are not stored until SessionStore#put is called
+     *
+     * @see SessionStore#put(int, Board)
+     *
+     * @param id
+     * The id of the game
+     *
+     * @return
+     * Returns a new Board in the position of the game
+     *
+     * @throws IllegalArgumentException
+     * Throws if there is no game with the id
+     */
+    public Board get(int id) {
+        final int packed;
+        synchronized(lock(id)) {
+            packed = read(id);
+        }
+
+        return unpack(packed);
+    }
+
+    /**
+     * Packs a Board and stores it as the new state of a game
+     *
+     * @param id
+     * The id of the game
+     *
+     * @param board
+     * The Board to store, must be a normal 3 by 3 Board
+     *
+     * @throws IllegalArgumentException
+     * Throws if there is no game with the id or the Board is not 3 by 3
+     */
+    public void put(int id, Board board) {
+        final int packed = pack(board);
+        synchronized(lock(id)) {
+            read(id);
+            this.games[id] = packed;
+        }
+    }
+
+    /**
+     * Plays a slot in a game
+     * The game is inflated, moved and packed again while holding its lock,
+     * so moves on the same game never get lost
+     *
+     * @param id
+     * The id of the game
+     *
+     * @param slot
+     * The slot the piece should be placed in
+     *
+     * @return
+     * Returns true if the move was made, else returns false
+     *
+     * @throws IllegalArgumentException
+     * Throws if there is no game with the id
+     */
+    public boolean move(int id, int slot) {
+        synchronized(lock(id)) {
+            final Board board = unpack(read(id));
+            if(!board.move(slot))
+                return false;
+
+            this.games[id] = pack(board);
+            return true;
+        }
+    }
+
+    /**
+     * Removes a game so its id can be handed out again
+     *
+     * @param id
+     * The id of the game
+     *
+     * @throws IllegalArgumentException
+     * Throws if there is no game with the id
+     */
+    public void remove(int id) {
+        synchronized(lock(id)) {
+            read(id);
+            this.games[id] = 0;
+        }
+
+        synchronized(this.freeLock) {
+            this.games[id] = this.free;
+            this.free = id;
+            this.size--;
+        }
+    }
+
+    /**
+     * Gets the amount of games in the store
+     *
+     * @return
+     * Returns the amount of games in use
+     */
+    public int size() {
+        synchronized(this.freeLock) {
+            return this.size;
+        }
+    }
+
+    /**
+     * Gets the most games the store can hold
+     *
+     * @return
+     * Returns the capacity of the store
+     */
+    public int capacity() {
+        return this.games.length;
+    }
+
+    /**
+     * Private helper method to get the lock that guards a game
+     *
+     * @param id
+     * The id of the game
+     *
+     * @return
+     * Returns the lock of the stripe the game belongs to
+     */
+    private Object lock(int id) {
+        return this.locks[id & (STRIPES - 1)];
+    }
+
+    /**
+     * Private helper method to read a packed game
+     * Must be called while holding the lock of the game
+     *
+     * @param id
+     * The id of the game
+     *
+     * @return
+     * Returns the packed game
+     *
+     * @throws IllegalArgumentException
+     * Throws if there is no game with the id
+     */
+    private int read(int id) {
+        if(id < 0 || id >= this.games.length || (this.games[id] & USED) == 0)
+            throw new IllegalArgumentException("Unknown game " + id);
+
+        return this.games[id];
+    }
+
+    /**
+     * Packs a Board into a single int
+     *
+     * @param board
+     * The Board to pack, must be a normal 3 by 3 Board
+     *
+     * @return
+     * Returns the packed game
+     *
+     * @throws IllegalArgumentException
+     * Throws if the Board is not 3 by 3
+     */
+    static int pack(Board board) {
+        if(board.getWidth() != SIZE || board.getHeight() != SIZE || board.getWinLength() != SIZE)
+            throw new IllegalArgumentException("Only 3 by 3 games can be stored");
+
+        int packed = USED;
+        for(int slot = 0; slot < SLOTS; slot++)
+            if(board.getPiece(slot) != null)
+                packed |= (board.getPiece(slot).ordinal() + 1) << (slot * 2);
+
+        if(board.getTurn() == Board.Piece.O)
+            packed |= TURN;
+
+        final int status = !board.isGameOver() ? PLAYING : board.getWinner() == null ? DRAW : board.getWinner().ordinal() + 1;
+        return packed | status << STATUS_SHIFT;
+    }
+
+    /**
+     * Inflates a packed game into a Board
+     *
+     * @param packed
+     * The packed game
+     *
+     * @return
+     * Returns a new Board in the position of the game
+     */
+    static Board unpack(int packed) {
+        final Board.Piece[] pieces = new Board.Piece[SLOTS];
+        for(int slot = 0; slot < SLOTS; slot++) {
+            final int cell = (packed >>> (slot * 2)) & 0b11;
+            if(cell != 0)
+                pieces[slot] = Board.Piece.values()[cell - 1];
+        }
+
+        final int status = (packed >>> STATUS_SHIFT) & 0b11;
+        final Board.Piece winner = status == PLAYING || status == DRAW ? null : Board.Piece.values()[status - 1];
+        final Board.Piece turn = (packed & TURN) != 0 ? Board.Piece.O : Board.Piece.X;
+        return new Board(SIZE, SIZE, SIZE, pieces, turn, winner);
+    }
+}
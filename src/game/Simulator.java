@@ -0,0 +1,300 @@
+package game;
+
+import ai.AI;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class plays games between two strategies without any user interface
+ * Games are split over several threads, and every thread has its own Board
+ * and its own random generator so the threads share nothing while playing
+ *
+ * A run started with the same seed and thread count plays the same games
+ */
+public class Simulator {
+
+    private static final int SLOTS = 9;
+
+    /**
+     * Something that picks a slot to play
+     */
+    public interface Strategy {
+
+        /**
+         * Picks the slot to play next
+         *
+         * @param board
+         * The Board to pick a slot for, must not be changed
+         *
+         * @param random
+         * The random generator of the thread playing the game
+         *
+         * @return
+         * Returns the slot to play
+         */
+        int getMove(Board board, SplittableRandom random);
+
+        /**
+         * Gets a Strategy by name
+         * Known names are random, minimax, alphabeta and solved, and minimax
+         * and alphabeta can be limited in depth by adding it, as in alphabeta:2
+         *
+         * @param name
+         * The name of the Strategy
+         *
+         * @return
+         * Returns the Strategy with the name
+         *
+         * @throws IllegalArgumentException
+         * Throws if there is no Strategy with the name
+         */
+        static Strategy of(String name) {
+            final String[] parts = name.toLowerCase().split(":");
+            final int depth = parts.length > 1 ? Integer.parseInt(parts[1]) : Integer.MAX_VALUE;
+            switch(parts[0]) {
+                case "random": return AI::getRandomMove;
+                case "minimax": return (board, random) -> AI.getMiniMaxMove(board, board.getTurn(), depth);
+                case "alphabeta": return (board, random) -> AI.getAlphaBetaMove(board, board.getTurn(), depth);
+                case "solved": return (board, random) -> AI.getSolvedMove(board);
+                default: throw new IllegalArgumentException("Unknown strategy " + name);
+            }
+        }
+    }
+
+    /**
+     * The combined outcome of a batch of games
+     */
+    public static class Result {
+
+        private final long[] moves;
+        private long xWins;
+        private long oWins;
+        private long draws;
+        private long nanos;
+
+        /**
+         * Constructor for an empty Result object
+         *
+         * @param slots
+         * The amount of slots on the board, which is the longest a game can last
+         */
+        private Result(int slots) {
+            this.moves = new long[slots + 1];
+        }
+
+        /**
+         * Private helper method to count a finished game
+         *
+         * @param board
+         * The Board of the finished game
+         */
+        private void add(Board board) {
+            if(board.getWinner() == Board.Piece.X) this.xWins++;
+            else if(board.getWinner() == Board.Piece.O) this.oWins++;
+            else this.draws++;
+
+            this.moves[board.getWidth() * board.getHeight() - board.getOpenSlotCount()]++;
+        }
+
+        /**
+         * Private helper method to merge the Result of another thread into this one
+         *
+         * @param other
+         * The Result to add
+         */
+        private void add(Result other) {
+            this.xWins += other.xWins;
+            this.oWins += other.oWins;
+            this.draws += other.draws;
+            for(int i = 0; i < this.moves.length; i++)
+                this.moves[i] += other.moves[i];
+        }
+
+        /**
+         * Gets the amount of games played
+         *
+         * @return
+         * Returns the amount of games played
+         */
+        public long getGames() {
+            return this.xWins + this.oWins + this.draws;
+        }
+
+        /**
+         * Gets the amount of games won by a player, or drawn
+         *
+         * @param winner
+         * The Piece enum of the winner, or null for draws
+         *
+         * @return
+         * Returns the amount of games that ended with the winner
+         */
+        public long getGames(Board.Piece winner) {
+            if(winner == Board.Piece.X) return this.xWins;
+            if(winner == Board.Piece.O) return this.oWins;
+            return this.draws;
+        }
+
+        /**
+         * Gets the amount of games that lasted a certain amount of moves
+         *
+         * @param moves
+         * The amount of moves
+         *
+         * @return
+         * Returns the amount of games that ended after exactly that many moves
+         */
+        public long getGamesOfLength(int moves) {
+            return moves < 0 || moves >= this.moves.length ? 0 : this.moves[moves];
+        }
+
+        /**
+         * Gets how many games were played per second
+         *
+         * @return
+         * Returns the throughput of the whole run
+         */
+        public double getGamesPerSecond() {
+            return this.nanos == 0 ? 0 : getGames() * 1e9 / this.nanos;
+        }
+
+        /**
+         * The String representation of the Result object
+         *
+         * @return
+         * Returns the rates, throughput and game lengths on several lines
+         */
+        @Override
+        public String toString() {
+            final double games = Math.max(getGames(), 1);
+            final StringBuilder sb = new StringBuilder();
+            sb.append(String.format("games=%d X=%.2f%% O=%.2f%% draw=%.2f%% games/s=%.0f%n", getGames(),
+                    this.xWins * 100 / games, this.oWins * 100 / games, this.draws * 100 / games, getGamesPerSecond()));
+
+            sb.append("moves per game:");
+            for(int i = 0; i < this.moves.length; i++)
+                if(this.moves[i] != 0)
+                    sb.append(String.format(" %d=%.2f%%", i, this.moves[i] * 100 / games));
+
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Plays a batch of games and combines the results
+     *
+     * @param x
+     * The Strategy playing X, which always moves first
+     *
+     * @param o
+     * The Strategy playing O
+     *
+     * @param games
+     * How many games to play
+     *
+     * @param threads
+     * How many threads to spread the games over
+     *
+     * @param seed
+     * The seed of the random generators
+     *
+     * @return
+     * Returns the combined Result of every game
+     *
+     * @throws IllegalStateException
+     * Throws if a strategy failed or the run was interrupted
+     */
+    public static Result run(Strategy x, Strategy o, long games, int threads, long seed) {
+        if(games < 0 || threads < 1)
+            throw new IllegalArgumentException("Need a positive amount of games and threads");
+
+        final ExecutorService service = Executors.newFixedThreadPool(threads);
+        final SplittableRandom root = new SplittableRandom(seed);
+        final List<Future<Result>> shards = new ArrayList<>();
+        final long start = System.nanoTime();
+        try {
+            for(int i = 0; i < threads; i++) {
+                final long count = games / threads + (i < games % threads ? 1 : 0);
+                final SplittableRandom random = root.split();
+                shards.add(service.submit(() -> play(x, o, count, random)));
+            }
+
+            final Result result = new Result(SLOTS);
+            for(Future<Result> shard : shards)
+                result.add(shard.get());
+
+            result.nanos = System.nanoTime() - start;
+            return result;
+        }catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation was interrupted", e);
+        }catch(ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        }finally {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Private helper method that plays the games of one thread
+     * The same Board is reset and reused for every game
+     *
+     * @param x
+     * The Strategy playing X
+     *
+     * @param o
+     * The Strategy playing O
+     *
+     * @param games
+     * How many games to play
+     *
+     * @param random
+     * The random generator of the thread
+     *
+     * @return
+     * Returns the Result of the games
+     */
+    private static Result play(Strategy x, Strategy o, long games, SplittableRandom random) {
+        final Board board = new Board();
+        final Result result = new Result(SLOTS);
+        for(long game = 0; game < games; game++) {
+            board.reset();
+            while(!board.isGameOver()) {
+                final int slot = (board.getTurn() == Board.Piece.X ? x : o).getMove(board, random);
+                if(!board.move(slot))
+                    throw new IllegalStateException("Strategy played the taken slot " + slot);
+            }
+
+            result.add(board);
+        }
+
+        return result;
+    }
+
+    /**
+     * Runs a simulation from the command line and prints the result
+     *
+     * @param args
+     * The strategy for X, the strategy for O, and optionally the amount of
+     * games, the amount of threads and the seed, for example:
+     * random alphabeta:2 1000000 8 42
+     */
+    public static void main(String[] args) {
+        if(args.length < 2) {
+            System.out.println("Usage: Simulator <x strategy> <o strategy> [games] [threads] [seed]");
+            System.out.println("Strategies: random, minimax[:depth], alphabeta[:depth], solved");
+            return;
+        }
+
+        final long games = args.length > 2 ? Long.parseLong(args[2]) : 100_000;
+        final int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        final long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+        System.out.println(run(Strategy.of(args[0]), Strategy.of(args[1]), games, threads, seed));
+    }
+}
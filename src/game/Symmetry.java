@@ -0,0 +1,182 @@
+package game;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class for the symmetries of a board of a certain size
+ * A square board has 8, the 4 rotations and the 4 reflections, while any
+ * other board only has 4 since it cannot be turned a quarter
+ *
+ * Symmetry n maps a position to an equivalent position with the same value,
+ * so anything that caches positions can store all variants under one key
+ */
+public class Symmetry {
+
+    public static final int IDENTITY = 0;
+
+    private static final Map<Long, Symmetry> CACHE = new ConcurrentHashMap<>();
+
+    private final int width;
+    private final int height;
+    private final int[][] slots;
+    private final int[][] inverse;
+
+    /**
+     * Private constructor for the Symmetry object
+     * Instances are shared through Symmetry#of(int, int)
+     *
+     * @see Symmetry#of(int, int)
+     *
+     * @param width
+     * The amount of columns on the board
+     *
+     * @param height
+     * The amount of rows on the board
+     */
+    private Symmetry(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        final int count = width == height ? 8 : 4;
+        this.slots = new int[count][width * height];
+        this.inverse = new int[count][width * height];
+        for(int slot = 0; slot < width * height; slot++) {
+            final int x = slot % width;
+            final int y = slot / width;
+            final int mx = width - 1 - x;
+            final int my = height - 1 - y;
+            final int[][] images = width == height
+                    ? new int[][] { {x, y}, {my, x}, {mx, my}, {y, mx}, {mx, y}, {x, my}, {y, x}, {my, mx} }
+                    : new int[][] { {x, y}, {mx, my}, {mx, y}, {x, my} };
+
+            for(int s = 0; s < count; s++) {
+                this.slots[s][slot] = images[s][1] * width + images[s][0];
+                this.inverse[s][this.slots[s][slot]] = slot;
+            }
+        }
+    }
+
+    /**
+     * Gets the symmetries of a board of a certain size
+     * Instances are created once and shared after that
+     *
+     * @param width
+     * The amount of columns on the board
+     *
+     * @param height
+     * The amount of rows on the board
+     *
+     * @return
+     * Returns the Symmetry object for the board size
+     */
+    public static Symmetry of(int width, int height) {
+        return CACHE.computeIfAbsent((long)width << 32 | height, key -> new Symmetry(width, height));
+    }
+
+    /**
+     * Gets the amount of symmetries, including the identity
+     *
+     * @return
+     * Returns 8 for square boards and 4 for any other board
+     */
+    public int count() {
+        return this.slots.length;
+    }
+
+    /**
+     * Maps a slot to where it ends up after applying a symmetry
+     *
+     * @param symmetry
+     * The symmetry to apply, between 0 and count() - 1
+     *
+     * @param slot
+     * The slot to map
+     *
+     * @return
+     * Returns the slot in the transformed position
+     */
+    public int apply(int symmetry, int slot) {
+        return this.slots[symmetry][slot];
+    }
+
+    /**
+     * Maps a slot in a transformed position back to the original position
+     * Used to turn a slot chosen on the canonical form into a playable slot
+     *
+     * @param symmetry
+     * The symmetry that was applied, between 0 and count() - 1
+     *
+     * @param slot
+     * The slot in the transformed position
+     *
+     * @return
+     * Returns the slot in the original position
+     */
+    public int invert(int symmetry, int slot) {
+        return this.inverse[symmetry][slot];
+    }
+
+    /**
+     * Applies a symmetry to every slot of a mask
+     *
+     * @param symmetry
+     * The symmetry to apply, between 0 and count() - 1
+     *
+     * @param mask
+     * The mask to transform where bit n stands for slot n
+     *
+     * @return
+     * Returns the transformed mask
+     */
+    public long applyMask(int symmetry, long mask) {
+        if(symmetry == IDENTITY)
+            return mask;
+
+        long out = 0;
+        for(long rest = mask; rest != 0; rest &= rest - 1)
+            out |= 1L << this.slots[symmetry][Long.numberOfTrailingZeros(rest)];
+
+        return out;
+    }
+
+    /**
+     * Gets the open slots that are not equivalent to a lower open slot
+     * Two slots are equivalent when a symmetry that leaves the position
+     * unchanged maps one onto the other, so they lead to the same value
+     *
+     * @param xMask
+     * The mask of slots owned by X
+     *
+     * @param oMask
+     * The mask of slots owned by O
+     *
+     * @return
+     * Returns a mask of the distinct open slots
+     */
+    public long uniqueSlots(long xMask, long oMask) {
+        int stabilizer = 0;
+        for(int s = 1; s < count(); s++)
+            if(applyMask(s, xMask) == xMask && applyMask(s, oMask) == oMask)
+                stabilizer |= 1 << s;
+
+        final int slots = this.width * this.height;
+        final long open = ~(xMask | oMask) & (slots == 64 ? -1L : (1L << slots) - 1);
+        if(stabilizer == 0)
+            return open;
+
+        long unique = 0;
+        long covered = 0;
+        for(long rest = open; rest != 0; rest &= rest - 1) {
+            final int slot = Long.numberOfTrailingZeros(rest);
+            if((covered & 1L << slot) != 0)
+                continue;
+
+            unique |= 1L << slot;
+            for(int s = stabilizer; s != 0; s &= s - 1)
+                covered |= 1L << this.slots[Integer.numberOfTrailingZeros(s)][slot];
+        }
+
+        return unique;
+    }
+}
\ No newline at end of file
@@ -1,17 +1,18 @@
 package game;
 
 import ai.AI;
+import ai.Ponder;
 import util.Display;
 import util.PlayerInput;
 import util.AudioPlayer;
 
 import javax.imageio.ImageIO;
+import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -20,15 +21,19 @@ import java.util.concurrent.TimeUnit;
  */
 public class TicTacToe implements PlayerInput {
 
+    private static final long AI_MILLIS = 1000;
+    private static final long MOVE_DELAY_MILLIS = 300;
+    private static final long RESET_MILLIS = 3000;
+    private static final Executor SWING = SwingUtilities::invokeLater;
+
     private final Board board;
     private final Display display;
     private final AudioPlayer audioPlayer;
 
-    private final BufferedImage xImg;
-    private final BufferedImage oImg;
-    private final BufferedImage boardImg;
+    private final BoardRenderer renderer;
 
-    private final ScheduledExecutorService service;
+    private CompletableFuture<Integer> aiMove;
+    private Ponder ponder;
     private boolean singlePlayer;
 
     /**
@@ -43,14 +48,11 @@ public class TicTacToe implements PlayerInput {
      * Throws if there was an error accessing the audio files
      */
     private TicTacToe(int size) throws Exception {
-        this.xImg = ImageIO.read(new File("images/x.png"));
-        this.oImg = ImageIO.read(new File("images/o.png"));
-        this.boardImg = ImageIO.read(new File("images/board.png"));
+        this.renderer = new BoardRenderer(ImageIO.read(new File("images/board.png")), ImageIO.read(new File("images/x.png")), ImageIO.read(new File("images/o.png")));
 
         this.board = new Board();
         this.audioPlayer = new AudioPlayer("audio/move.wav");
-        this.display = new Display("Tic-Tac-Toe", size, this.boardImg);
-        this.service = Executors.newSingleThreadScheduledExecutor();
+        this.display = new Display("Tic-Tac-Toe", size, (g, side) -> this.renderer.paint(g, this.board, side));
     }
 
     /**
@@ -62,13 +64,15 @@ public class TicTacToe implements PlayerInput {
     private void run() {
         this.display.addListener(this);
         this.singlePlayer = this.display.popup("How would you like to play?", "Two Player", "Single Player") != 0;
+        if(this.singlePlayer)
+            SWING.execute(this::startPondering);
     }
 
     /**
      * Closes all resources and ends the game
      */
     private void end() {
-        this.service.shutdown();
+        cancelAIMove();
         this.audioPlayer.close();
     }
 
@@ -76,6 +80,12 @@ public class TicTacToe implements PlayerInput {
      * The method that handles all the game logic
      * This method is fired every time the user clicks on the board
      *
+     * The Board is only ever changed on the Swing thread, the AI searches a
+     * copy of it in the background and its move is played back on the
+     * Swing thread once it is found
+     * While the player thinks the AI ponders their replies, so it can
+     * usually answer straight away
+     *
      * @see PlayerInput#onPlayerInput(Point)
      * @see Display#mouseClicked(MouseEvent)
      *
@@ -90,107 +100,115 @@ public class TicTacToe implements PlayerInput {
             return;
 
         this.audioPlayer.play();
-        this.display.updateImage(generateImage());
+        this.display.refresh();
         if(this.board.isGameOver()) {
             onGameOver();
             return;
         }
 
         if(singlePlayer) {
-            this.service.schedule(() -> {
-                this.board.move(AI.getAlphaBetaMove(board, Board.Piece.O));
-                this.audioPlayer.play();
-
-                this.display.updateImage(generateImage());
-                if(this.board.isGameOver())
-                    onGameOver();
-            }, 1000, TimeUnit.MILLISECONDS);
+            // The AI thinks while the short delay runs, and moves once both are done
+            final CompletableFuture<Integer> request = this.ponder != null
+                    ? this.ponder.requestMove(this.board, AI_MILLIS)
+                    : AI.requestMove(this.board, Board.Piece.O, AI_MILLIS);
+            this.ponder = null;
+            this.aiMove = request;
+            request.thenCombine(delay(MOVE_DELAY_MILLIS), (slot, ignored) -> slot)
+                   .whenCompleteAsync((slot, e) -> onAIMove(request, e == null ? slot : -1), SWING);
         }
     }
 
     /**
-     * Resets the board with a delay of 3 seconds
+     * Plays the move of the AI, called on the Swing thread
+     * Moves of requests that were cancelled or replaced in the meantime
+     * are ignored, and if the search failed a quick move is played instead
+     * so the game never waits on O forever
+     *
+     * @param request
+     * The request the move belongs to
+     *
+     * @param slot
+     * The slot the AI wants to play, or -1 if the search failed
      */
-    private void onGameOver() {
-        this.service.schedule(() -> {
-            this.board.reset();
-            this.display.updateImage(generateImage());
-        }, 3, TimeUnit.SECONDS);
+    private void onAIMove(CompletableFuture<Integer> request, int slot) {
+        if(request != this.aiMove)
+            return;
+
+        this.aiMove = null;
+        if(slot < 0 || !this.board.move(slot))
+            this.board.move(getFallbackMove());
+
+        this.audioPlayer.play();
+        this.display.refresh();
+        if(this.board.isGameOver())
+            onGameOver();
+        else
+            startPondering();
     }
 
     /**
-     * Private helper method for the TicTacToe class
-     * Generates an image of the board to be displayed
-     *
-     * @see TicTacToe#drawPieces(Graphics2D)
-     * @see TicTacToe#drawWinner(Graphics2D, BufferedImage)
+     * Private helper method to get a move without searching
      *
      * @return
-     * Returns a BufferedImage of the current state of the Board
+     * Returns the solved move, or a random move if the solved table cannot be used
      */
-    private BufferedImage generateImage() {
-        BufferedImage out = new BufferedImage(900, 900, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = out.createGraphics();
-
-        g.drawImage(this.boardImg, 0, 0, 900, 900, null);
-        drawPieces(g);
+    private int getFallbackMove() {
+        try {
+            return AI.getSolvedMove(this.board);
+        }catch(RuntimeException e) {
+            return AI.getRandomMove(this.board);
+        }
+    }
 
-        if(this.board.isGameOver())
-            drawWinner(g, out);
+    /**
+     * Private helper method that lets the AI think while the player is to move
+     * Called on the Swing thread
+     */
+    private void startPondering() {
+        if(this.ponder == null && !this.board.isGameOver() && this.board.getTurn() == Board.Piece.X)
+            this.ponder = AI.startPondering(this.board, Board.Piece.O);
+    }
 
-        g.dispose();
-        return out;
+    /**
+     * Stops the AI right away and resets the board with a delay of 3 seconds
+     * Nothing is left to ponder once the game is over
+     */
+    private void onGameOver() {
+        cancelAIMove();
+        delay(RESET_MILLIS).thenRunAsync(() -> {
+            this.board.reset();
+            this.display.refresh();
+            if(this.singlePlayer)
+                startPondering();
+        }, SWING);
     }
 
     /**
-     * Private helper method for the TicTacToe class
-     * Draws the Pieces onto the board
-     *
-     * @see TicTacToe#generateImage()
-     *
-     * @param g
-     * The Graphics object to use when editing the image
+     * Private helper method that stops the AI if it is still thinking or pondering
      */
-    private void drawPieces(Graphics2D g) {
-        for(int x = 0; x < 3; x++) {
-            for(int y = 0; y < 3; y++) {
-                if(this.board.getBoardRaw()[x][y] != null) {
-                    BufferedImage piece = this.board.getBoardRaw()[x][y] == Board.Piece.X ? xImg : oImg;
-                    g.drawImage(piece, x*290+60, y*290+60, piece.getWidth(), piece.getHeight(), null);
-                }
-            }
+    private void cancelAIMove() {
+        final CompletableFuture<Integer> request = this.aiMove;
+        this.aiMove = null;
+        if(request != null)
+            request.cancel(false);
+
+        if(this.ponder != null) {
+            this.ponder.stop();
+            this.ponder = null;
         }
     }
 
     /**
-     * Private helper method for the TicTacToe class
-     * Draws the winner status onto the board
+     * Private helper method that creates a future that completes after a delay
      *
-     * @see TicTacToe#generateImage()
+     * @param millis
+     * How many milliseconds to wait
      *
-     * @param g
-     * The Graphics object to use when editing the image
-     *
-     * @param img
-     * The BufferedImage to be edited
+     * @return
+     * Returns a CompletableFuture that completes once the delay has passed
      */
-    private void drawWinner(Graphics2D g, BufferedImage img) {
-        Board.Piece winner = this.board.getWinner();
-        if(winner != null) {
-            Color c = Color.decode(winner == Board.Piece.X ? "#e25043" : "#1bbc9b");
-            for(int x = 0; x < img.getWidth(); x++) {
-                for(int y = 0; y < img.getHeight(); y++) {
-                    if(new Color(img.getRGB(x,y)).getGreen() > 200)
-                        img.setRGB(x,y,c.getRGB());
-                }
-            }
-        }
-
-        String msg = winner == null ? "Draw" : winner.name() + " Wins";
-        g.setFont(new Font("helvetica", Font.BOLD, 60));
-
-        FontMetrics metrics = g.getFontMetrics();
-        g.drawString(msg, 450-metrics.stringWidth(msg)/2, 450+metrics.getAscent()-metrics.getHeight()/2);
+    private static CompletableFuture<Void> delay(long millis) {
+        return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS));
     }
 
     /**
@@ -0,0 +1,417 @@
+package server;
+
+import ai.AI;
+import game.Board;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class hosts games for clients over a plain text TCP protocol
+ * Every request is one line and gets exactly one line back, which starts
+ * with OK or ERR:
+ *
+ * NEW [width height winLength]  creates a game and returns its id
+ * STATE id                      returns the state of a game
+ * MOVE id slot                  plays a slot and returns the new state
+ * AI id [millis]                lets the AI move and returns the slot and the new state
+ * END id                        removes a game
+ * QUIT                          closes the connection
+ *
+ * A state is the slots row by row with . for an empty slot, the player to
+ * move and either PLAYING, DRAW or the winning Piece, as in X.O...... X PLAYING
+ *
+ * Every connection gets its own thread, a virtual thread when the JVM has
+ * them, and AI moves are computed on a bounded pool so a burst of AI
+ * requests can never starve the connections
+ *
+ * Boards are limited to what the AI can search, a connection may only
+ * hold a few games at a time, and its games are removed when it closes
+ * A connection can only see and play the games it created itself
+ * AI moves are limited to a few seconds of thinking
+ */
+public class GameServer {
+
+    private static final long DEFAULT_AI_MILLIS = 100;
+    private static final long MAX_AI_MILLIS = 5_000;
+    private static final long AI_GRACE_MILLIS = 1_000;
+    private static final int MAX_SLOTS = 64;
+    private static final int MAX_GAMES_PER_CONNECTION = 16;
+
+    private final ServerSocket socket;
+    private final ExecutorService connections;
+    private final ThreadPoolExecutor workers;
+    private final Map<Integer, Board> games;
+    private final AtomicInteger nextId;
+
+    /**
+     * Default constructor for the GameServer object
+     *
+     * @param port
+     * The port to listen on, or 0 for any free port
+     *
+     * @param aiThreads
+     * How many threads may compute AI moves at the same time
+     *
+     * @param aiQueue
+     * How many AI moves may wait for a thread before new ones are refused
+     *
+     * @throws IOException
+     * Throws if the port could not be opened
+     */
+    public GameServer(int port, int aiThreads, int aiQueue) throws IOException {
+        this.socket = new ServerSocket(port);
+        this.connections = newConnectionExecutor();
+        this.workers = new ThreadPoolExecutor(aiThreads, aiThreads, 0, TimeUnit.MILLISECONDS,
+                                              new ArrayBlockingQueue<>(aiQueue));
+        this.games = new ConcurrentHashMap<>();
+        this.nextId = new AtomicInteger();
+    }
+
+    /**
+     * Accepts connections until the server is closed
+     * Blocks the calling thread
+     */
+    public void run() {
+        while(!this.socket.isClosed()) {
+            try {
+                final Socket client = this.socket.accept();
+                this.connections.execute(() -> serve(client));
+            }catch(IOException e) {
+                if(!this.socket.isClosed())
+                    System.err.println("Unable to accept connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and shuts the thread pools down
+     */
+    public void close() {
+        try {
+            this.socket.close();
+        }catch(IOException ignored) {
+            // Nothing left to clean up once the socket is gone
+        }
+
+        this.connections.shutdownNow();
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * Gets the port the server listens on
+     *
+     * @return
+     * Returns the local port of the server
+     */
+    public int getPort() {
+        return this.socket.getLocalPort();
+    }
+
+    /**
+     * Private helper method that answers the requests of one connection
+     *
+     * @param client
+     * The Socket of the connection
+     */
+    private void serve(Socket client) {
+        final Set<Integer> owned = new HashSet<>();
+        try(Socket s = client;
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+            PrintWriter out = new PrintWriter(s.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            s.setTcpNoDelay(true);
+            for(String line = in.readLine(); line != null; line = in.readLine()) {
+                final String[] args = line.trim().split("\\s+");
+                if(args[0].equalsIgnoreCase("QUIT"))
+                    break;
+
+                String reply;
+                try {
+                    reply = "OK " + handle(args, owned);
+                }catch(IllegalArgumentException | IllegalStateException e) {
+                    reply = "ERR " + e.getMessage();
+                }
+
+                out.println(reply);
+            }
+        }catch(IOException e) {
+            // The client went away, there is nobody left to tell
+        }finally {
+            for(int id : owned)
+                this.games.remove(id);
+        }
+    }
+
+    /**
+     * Private helper method that carries out a single request
+     *
+     * @param args
+     * The words of the request line
+     *
+     * @param owned
+     * The ids of the games created by the connection
+     *
+     * @return
+     * Returns the reply without the OK in front
+     *
+     * @throws IllegalArgumentException
+     * Throws if the request is malformed or names a game the connection did not create
+     *
+     * @throws IllegalStateException
+     * Throws if the request cannot be carried out right now
+     */
+    private String handle(String[] args, Set<Integer> owned) {
+        switch(args[0].toUpperCase()) {
+            case "NEW": {
+                if(args.length != 1 && args.length != 4)
+                    throw new IllegalArgumentException("NEW takes either no size or a width, height and win length");
+                if(owned.size() >= MAX_GAMES_PER_CONNECTION)
+                    throw new IllegalStateException("Too many games, END one first");
+
+                final Board board = args.length == 4 ? newBoard(parse(args[1]), parse(args[2]), parse(args[3])) : new Board();
+                final int id = this.nextId.incrementAndGet();
+                this.games.put(id, board);
+                owned.add(id);
+                return Integer.toString(id);
+            }
+            case "STATE": {
+                final Board board = getGame(args, owned);
+                synchronized(board) {
+                    return state(board);
+                }
+            }
+            case "MOVE": {
+                final Board board = getGame(args, owned);
+                if(args.length < 3)
+                    throw new IllegalArgumentException("Missing slot");
+
+                synchronized(board) {
+                    if(!board.move(parse(args[2])))
+                        throw new IllegalStateException("Illegal move");
+
+                    return state(board);
+                }
+            }
+            case "AI": {
+                final Board board = getGame(args, owned);
+                final long millis = args.length >= 3 ? parse(args[2]) : DEFAULT_AI_MILLIS;
+                return aiMove(board, Math.max(0, Math.min(millis, MAX_AI_MILLIS)));
+            }
+            case "END": {
+                final int id = parse(args.length > 1 ? args[1] : "");
+                if(!owned.remove(id))
+                    throw new IllegalArgumentException("Unknown game");
+
+                this.games.remove(id);
+                return "ENDED";
+            }
+            default:
+                throw new IllegalArgumentException("Unknown command " + args[0]);
+        }
+    }
+
+    /**
+     * Private helper method that lets the AI move on the worker pool
+     * The connection thread only waits for the result
+     *
+     * @param board
+     * The Board of the game
+     *
+     * @param millis
+     * How many milliseconds the AI may think for, at most MAX_AI_MILLIS
+     *
+     * @return
+     * Returns the slot the AI played followed by the new state
+     *
+     * @throws IllegalStateException
+     * Throws if the worker pool is full, the game is already over or the
+     * move took far longer than it was allowed to
+     */
+    private String aiMove(Board board, long millis) {
+        final Future<String> result;
+        try {
+            result = this.workers.submit(() -> {
+                synchronized(board) {
+                    if(board.isGameOver())
+                        throw new IllegalStateException("Game is over");
+
+                    final int slot = AI.getTimedAlphaBetaMove(board, board.getTurn(), millis);
+                    board.move(slot);
+                    return slot + " " + state(board);
+                }
+            });
+        }catch(RejectedExecutionException e) {
+            throw new IllegalStateException("Server is busy");
+        }
+
+        try {
+            return result.get(millis + AI_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        }catch(TimeoutException e) {
+            result.cancel(true);
+            throw new IllegalStateException("AI timed out");
+        }catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted");
+        }catch(ExecutionException e) {
+            if(e.getCause() instanceof IllegalStateException)
+                throw (IllegalStateException)e.getCause();
+
+            throw new IllegalStateException("AI failed");
+        }
+    }
+
+    /**
+     * Private helper method that creates a Board a client asked for
+     * The size is checked before anything is allocated
+     *
+     * @param width
+     * The amount of columns
+     *
+     * @param height
+     * The amount of rows
+     *
+     * @param winLength
+     * How many pieces in a row are needed to win
+     *
+     * @return
+     * Returns the new Board
+     *
+     * @throws IllegalArgumentException
+     * Throws if the Board is larger than the AI can search or invalid
+     */
+    private static Board newBoard(int width, int height, int winLength) {
+        if(width < 1 || height < 1 || (long)width * height > MAX_SLOTS)
+            throw new IllegalArgumentException("Board must have between 1 and " + MAX_SLOTS + " slots");
+
+        return new Board(width, height, winLength);
+    }
+
+    /**
+     * Private helper method to look up the game a request is about
+     *
+     * Games of other connections are reported as unknown
+     *
+     * @param args
+     * The words of the request line, the game id is the second word
+     *
+     * @param owned
+     * The ids of the games created by the connection
+     *
+     * @return
+     * Returns the Board of the game
+     *
+     * @throws IllegalArgumentException
+     * Throws if the id is missing or not one of the connection's games
+     */
+    private Board getGame(String[] args, Set<Integer> owned) {
+        if(args.length < 2)
+            throw new IllegalArgumentException("Missing game id");
+
+        final int id = parse(args[1]);
+        final Board board = owned.contains(id) ? this.games.get(id) : null;
+        if(board == null)
+            throw new IllegalArgumentException("Unknown game");
+
+        return board;
+    }
+
+    /**
+     * Private helper method that turns a Board into a state line
+     *
+     * @param board
+     * The Board to describe
+     *
+     * @return
+     * Returns the slots, the player to move and the status
+     */
+    private static String state(Board board) {
+        final int slots = board.getWidth() * board.getHeight();
+        final StringBuilder sb = new StringBuilder(slots + 12);
+        for(int slot = 0; slot < slots; slot++) {
+            final Board.Piece piece = board.getPiece(slot);
+            sb.append(piece == null ? '.' : piece.name().charAt(0));
+        }
+
+        sb.append(' ').append(board.getTurn().name()).append(' ');
+        if(!board.isGameOver()) sb.append("PLAYING");
+        else if(board.getWinner() == null) sb.append("DRAW");
+        else sb.append(board.getWinner().name());
+
+        return sb.toString();
+    }
+
+    /**
+     * Private helper method to read a number from a request
+     *
+     * @param word
+     * The word to read
+     *
+     * @return
+     * Returns the number
+     *
+     * @throws IllegalArgumentException
+     * Throws if the word is not a number
+     */
+    private static int parse(String word) {
+        try {
+            return Integer.parseInt(word);
+        }catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + word);
+        }
+    }
+
+    /**
+     * Helper method that creates a thread per task executor for connections
+     * Uses virtual threads when the JVM has them, and falls back to a cached
+     * pool of platform threads on older versions
+     *
+     * @return
+     * Returns the executor to run connections on
+     */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }catch(ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Starts a server from the command line
+     *
+     * @param args
+     * Optionally the port, the amount of AI threads and the AI queue size
+     *
+     * @throws IOException
+     * Throws if the port could not be opened
+     */
+    public static void main(String[] args) throws IOException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        final int queue = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+
+        final GameServer server = new GameServer(port, threads, queue);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Listening on port " + server.getPort());
+        server.run();
+    }
+}
@@ -0,0 +1,197 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This class puts load on a GameServer and reports how fast it answers
+ * Every connection plays whole games where it moves at random and the
+ * server's AI answers, and the time of every MOVE and AI request is kept
+ */
+public class LoadClient {
+
+    /**
+     * Plays games on one connection and records the latency of every move
+     *
+     * @param host
+     * The host the server runs on
+     *
+     * @param port
+     * The port the server listens on
+     *
+     * @param games
+     * How many games to play
+     *
+     * @param millis
+     * How many milliseconds the AI may think per move
+     *
+     * @param random
+     * The random generator for the moves of this connection
+     *
+     * @return
+     * Returns the latency of every move in nanoseconds
+     *
+     * @throws IOException
+     * Throws if the connection failed or the server returned an error
+     */
+    private static long[] play(String host, int port, int games, long millis, SplittableRandom random) throws IOException {
+        final long[] latencies = new long[games * 9];
+        int count = 0;
+        try(Socket socket = new Socket(host, port);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            socket.setTcpNoDelay(true);
+            for(int game = 0; game < games; game++) {
+                final String id = request(in, out, "NEW");
+                String state = request(in, out, "STATE " + id);
+                while(state.endsWith("PLAYING")) {
+                    final long start = System.nanoTime();
+                    if(state.charAt(state.length() - 9) == 'X') {
+                        state = request(in, out, "MOVE " + id + " " + randomSlot(state, random));
+                    }else {
+                        final String reply = request(in, out, "AI " + id + " " + millis);
+                        state = reply.substring(reply.indexOf(' ') + 1);
+                    }
+
+                    latencies[count++] = System.nanoTime() - start;
+                }
+
+                request(in, out, "END " + id);
+            }
+
+            out.println("QUIT");
+        }
+
+        return Arrays.copyOf(latencies, count);
+    }
+
+    /**
+     * Private helper method that sends a request and waits for the reply
+     *
+     * @param in
+     * The reader of the connection
+     *
+     * @param out
+     * The writer of the connection
+     *
+     * @param request
+     * The request line
+     *
+     * @return
+     * Returns the reply without the OK in front
+     *
+     * @throws IOException
+     * Throws if the connection failed or the server returned an error
+     */
+    private static String request(BufferedReader in, PrintWriter out, String request) throws IOException {
+        out.println(request);
+        final String reply = in.readLine();
+        if(reply == null || !reply.startsWith("OK "))
+            throw new IOException(request + " failed: " + reply);
+
+        return reply.substring(3);
+    }
+
+    /**
+     * Private helper method that picks a random empty slot from a state line
+     *
+     * @param state
+     * The state returned by the server
+     *
+     * @param random
+     * The random generator to pick with
+     *
+     * @return
+     * Returns an empty slot
+     */
+    private static int randomSlot(String state, SplittableRandom random) {
+        final int slots = state.indexOf(' ');
+        int open = 0;
+        for(int i = 0; i < slots; i++)
+            if(state.charAt(i) == '.')
+                open++;
+
+        int n = random.nextInt(open);
+        for(int i = 0; i < slots; i++)
+            if(state.charAt(i) == '.' && n-- == 0)
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * Runs the load test from the command line and prints the latencies
+     *
+     * @param args
+     * Optionally the host, the port, the amount of connections, the games
+     * per connection and the AI time per move in milliseconds
+     *
+     * @throws Exception
+     * Throws if any connection failed
+     */
+    public static void main(String[] args) throws Exception {
+        final String host = args.length > 0 ? args[0] : "localhost";
+        final int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+        final int connections = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        final int games = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        final long millis = args.length > 4 ? Long.parseLong(args[4]) : 10;
+
+        final ExecutorService service = GameServer.newConnectionExecutor();
+        final SplittableRandom root = new SplittableRandom();
+        final List<Future<long[]>> results = new ArrayList<>();
+        final long start = System.nanoTime();
+        for(int i = 0; i < connections; i++) {
+            final SplittableRandom random = root.split();
+            results.add(service.submit(() -> play(host, port, games, millis, random)));
+        }
+
+        final List<long[]> parts = new ArrayList<>();
+        try {
+            for(Future<long[]> result : results)
+                parts.add(result.get());
+        }catch(ExecutionException e) {
+            throw new IOException("Connection failed", e.getCause());
+        }finally {
+            service.shutdownNow();
+        }
+
+        final long elapsed = System.nanoTime() - start;
+        final long[] latencies = parts.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        if(latencies.length == 0) {
+            System.out.println("No moves were played");
+            return;
+        }
+
+        System.out.printf("connections=%d games=%d moves=%d moves/s=%.0f%n", connections, connections * games,
+                          latencies.length, latencies.length * 1e9 / elapsed);
+        System.out.printf("p50=%.3fms p99=%.3fms max=%.3fms%n", percentile(latencies, 0.50) / 1e6,
+                          percentile(latencies, 0.99) / 1e6, latencies[latencies.length - 1] / 1e6);
+    }
+
+    /**
+     * Private helper method to read a percentile from sorted values
+     *
+     * @param sorted
+     * The values in ascending order
+     *
+     * @param p
+     * The percentile between 0 and 1
+     *
+     * @return
+     * Returns the value below which the share p of all values lie
+     */
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int)Math.ceil(p * sorted.length) - 1)];
+    }
+}
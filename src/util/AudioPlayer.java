@@ -2,48 +2,229 @@ package util;
 
 import javax.sound.sampled.*;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Class that makes it simple to play audio by abstracting away object conversions
  * Acts as a wrapper for the javax default library
  * NOTE: This only supports .wav file types
+ *
+ * Every sound is decoded to 16 bit PCM once when the AudioPlayer is made,
+ * and a single line is opened and started right away, so playing a sound
+ * never has to read a file or open a line
+ * A background thread mixes all sounds that are playing into that line, so
+ * sounds can overlap and play() only hands the sound over and returns
  */
 public class AudioPlayer {
 
-    private final Clip clip;
+    private static final int FRAMES = 512;
+    private static final int VOICES = 16;
+
+    private final AudioFormat format;
+    private final short[][] sounds;
+    private final Queue<short[]> pending;
+    private final SourceDataLine line;
+    private final Thread mixer;
+
+    private volatile boolean open;
 
     /**
      * Default constructor for the AudioPlayer object
-     * Creates a new Clip object that can be played when needed
+     * Decodes every file and opens the line they are played on
      *
-     * @param fileName
-     * The path to the file that wants to be played
+     * @param fileNames
+     * The paths to the files that want to be played, the first one is
+     * played by AudioPlayer#play() and the others by their index
      *
      * @throws Exception
-     * Throws if unable to find or play the file
+     * Throws if unable to find or play one of the files
      */
-    public AudioPlayer(String fileName) throws Exception {
-        AudioInputStream stream = AudioSystem.getAudioInputStream(new File(fileName));
-        this.clip = AudioSystem.getClip();
-        this.clip.open(stream);
-        stream.close();
+    public AudioPlayer(String... fileNames) throws Exception {
+        if(fileNames.length == 0)
+            throw new IllegalArgumentException("At least one file is needed");
+
+        try(AudioInputStream stream = AudioSystem.getAudioInputStream(new File(fileNames[0]))) {
+            final AudioFormat source = stream.getFormat();
+            this.format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                                          source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+        }
+
+        this.sounds = new short[fileNames.length][];
+        for(int i = 0; i < fileNames.length; i++)
+            this.sounds[i] = decode(fileNames[i], this.format);
+
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.line = AudioSystem.getSourceDataLine(this.format);
+        this.line.open(this.format, FRAMES * this.format.getFrameSize() * 4);
+        this.line.start();
+
+        // Pushing a little silence through gets the line going before the first sound
+        final byte[] silence = new byte[FRAMES * this.format.getFrameSize()];
+        this.line.write(silence, 0, silence.length);
+
+        this.open = true;
+        this.mixer = new Thread(this::mix, "AudioPlayer-Mixer");
+        this.mixer.setDaemon(true);
+        this.mixer.start();
     }
 
     /**
-     * Sets the starting point to 0 and plays the clip
+     * Plays the first sound from the start
+     * Returns right away, and overlaps with any sound that is still playing
      */
     public void play() {
-        if(!this.clip.isOpen())
+        play(0);
+    }
+
+    /**
+     * Plays a sound from the start
+     * Returns right away, and overlaps with any sound that is still playing
+     *
+     * @param sound
+     * The index of the file the sound was loaded from
+     *
+     * @throws IllegalArgumentException
+     * Throws if there is no sound with the index
+     */
+    public void play(int sound) {
+        if(!this.open)
             throw new IllegalStateException("AudioPlayer has already been closed");
+        if(sound < 0 || sound >= this.sounds.length)
+            throw new IllegalArgumentException("Unknown sound " + sound);
 
-        this.clip.setFramePosition(0);
-        this.clip.start();
+        this.pending.add(this.sounds[sound]);
+        LockSupport.unpark(this.mixer);
     }
 
     /**
-     * Closes the clip which in effect closes the AudioPlayer object
+     * Stops the mixer and closes the line which in effect closes the AudioPlayer object
      */
     public void close() {
-        this.clip.close();
+        this.open = false;
+        LockSupport.unpark(this.mixer);
+        try {
+            this.mixer.join(1000);
+        }catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.line.close();
+    }
+
+    /**
+     * Private helper method run by the mixer thread
+     * Adds up every sound that is playing a few milliseconds at a time and
+     * writes the result to the line, which blocks once the line is full and
+     * so keeps the mixer in step with the playback
+     * Sleeps while nothing is playing
+     */
+    private void mix() {
+        final short[][] voices = new short[VOICES][];
+        final int[] positions = new int[VOICES];
+        final int samples = FRAMES * this.format.getChannels();
+        final int[] sum = new int[samples];
+        final byte[] out = new byte[samples * 2];
+
+        int playing = 0;
+        while(this.open) {
+            for(short[] sound = this.pending.poll(); sound != null; sound = this.pending.poll())
+                playing = start(voices, positions, playing, sound);
+
+            if(playing == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            Arrays.fill(sum, 0);
+            for(int v = 0; v < playing; v++) {
+                final short[] voice = voices[v];
+                final int n = Math.min(samples, voice.length - positions[v]);
+                for(int i = 0; i < n; i++)
+                    sum[i] += voice[positions[v] + i];
+
+                positions[v] += n;
+                if(positions[v] == voice.length) {
+                    // The last voice takes the place of the finished one
+                    voices[v] = voices[--playing];
+                    positions[v] = positions[playing];
+                    voices[playing] = null;
+                    v--;
+                }
+            }
+
+            for(int i = 0; i < samples; i++) {
+                final int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum[i]));
+                out[i * 2] = (byte)sample;
+                out[i * 2 + 1] = (byte)(sample >> 8);
+            }
+
+            this.line.write(out, 0, out.length);
+        }
+    }
+
+    /**
+     * Private helper method that adds a sound to the voices that are playing
+     * When every voice is taken, the voice that played the longest makes room
+     *
+     * @param voices
+     * The samples of every voice that is playing
+     *
+     * @param positions
+     * How many samples of every voice have been played
+     *
+     * @param playing
+     * The amount of voices that are playing
+     *
+     * @param sound
+     * The samples of the sound to start
+     *
+     * @return
+     * Returns the new amount of voices that are playing
+     */
+    private static int start(short[][] voices, int[] positions, int playing, short[] sound) {
+        if(playing < voices.length) {
+            voices[playing] = sound;
+            positions[playing] = 0;
+            return playing + 1;
+        }
+
+        int oldest = 0;
+        for(int v = 1; v < playing; v++)
+            if(positions[v] > positions[oldest])
+                oldest = v;
+
+        voices[oldest] = sound;
+        positions[oldest] = 0;
+        return playing;
+    }
+
+    /**
+     * Private helper method that reads a whole file into memory as samples
+     *
+     * @param fileName
+     * The path to the file to decode
+     *
+     * @param format
+     * The 16 bit little endian PCM format to convert the file to
+     *
+     * @return
+     * Returns the interleaved samples of the file
+     *
+     * @throws Exception
+     * Throws if unable to read the file or convert it to the format
+     */
+    private static short[] decode(String fileName, AudioFormat format) throws Exception {
+        try(AudioInputStream stream = AudioSystem.getAudioInputStream(new File(fileName));
+            AudioInputStream pcm = AudioSystem.getAudioInputStream(format, stream)) {
+            final byte[] bytes = pcm.readAllBytes();
+            final short[] samples = new short[bytes.length / 2];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+            return samples;
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,18 +4,74 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Class that abstracts away annoying swing elements
  * This class provides easy to use methods to create a user interface
+ *
+ * The contents are painted straight onto a component at the size of the window,
+ * in the largest square that fits, so the window can be resized freely
  */
 public class Display extends JFrame implements MouseListener {
 
-    private final int size;
-    private final JLabel label;
+    /**
+     * Something that paints the contents of the Display
+     */
+    public interface Painter {
+
+        /**
+         * Paints the contents at a certain size
+         * Called on the Swing thread whenever the Display is repainted
+         *
+         * @param g
+         * The Graphics object to paint with, the square starts at its origin
+         *
+         * @param size
+         * The width and height of the square to paint
+         */
+        void paint(Graphics2D g, int size);
+    }
+
+    /**
+     * Painter that shows a fixed image
+     * Keeps a copy scaled to the last size, so the image is only scaled
+     * again when either the image or the size changes
+     */
+    private static class ImagePainter implements Painter {
+
+        private final Image img;
+        private BufferedImage scaled;
+
+        /**
+         * Constructor for the ImagePainter object
+         *
+         * @param img
+         * The image to show
+         */
+        private ImagePainter(Image img) {
+            this.img = img;
+        }
+
+        @Override
+        public void paint(Graphics2D g, int size) {
+            if(this.scaled == null || this.scaled.getWidth() != size) {
+                this.scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+                final Graphics2D sg = this.scaled.createGraphics();
+                sg.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                sg.drawImage(this.img, 0, 0, size, size, null);
+                sg.dispose();
+            }
+
+            g.drawImage(this.scaled, 0, 0, null);
+        }
+    }
+
+    private final JComponent canvas;
     private final List<PlayerInput> listeners;
+    private volatile Painter painter;
 
     /**
      * Default constructor for the Display object
@@ -31,23 +87,47 @@ public class Display extends JFrame implements MouseListener {
      * The BufferedImage to be displayed in the user interface
      */
     public Display(final String title, final int size, final Image img){
+        this(title, size, new ImagePainter(img));
+    }
+
+    /**
+     * Constructor for a Display object that paints with a Painter
+     * This will open up a user interface when called
+     *
+     * @param title
+     * The title of the user interface
+     *
+     * @param size
+     * The starting size of the user interface
+     *
+     * @param painter
+     * The Painter that paints the contents of the user interface
+     */
+    public Display(final String title, final int size, final Painter painter){
         super(title);
-        this.size = size;
-        this.label = new JLabel();
+        this.painter = painter;
         this.listeners = new ArrayList<>();
+        this.canvas = new JComponent() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                final int side = getSide();
+                final Graphics2D g2 = (Graphics2D)g.create((getWidth() - side) / 2, (getHeight() - side) / 2, side, side);
+                try {
+                    Display.this.painter.paint(g2, side);
+                }finally {
+                    g2.dispose();
+                }
+            }
+        };
 
         setDefaultCloseOperation(EXIT_ON_CLOSE);
-        setSize(size, size);
-        setResizable(false);
-
-        this.label.setSize(size,size);
-        updateImage(img);
-        add(this.label);
-
-        setLocationRelativeTo(null);
-        addMouseListener(this);
+        this.canvas.setPreferredSize(new Dimension(size, size));
+        this.canvas.setOpaque(false);
+        this.canvas.addMouseListener(this);
+        add(this.canvas);
 
         pack();
+        setLocationRelativeTo(null);
         setVisible(true);
     }
 
@@ -73,7 +153,36 @@ public class Display extends JFrame implements MouseListener {
      * The image to display on the Display object
      */
     public void updateImage(final Image img) {
-        this.label.setIcon(new ImageIcon(img.getScaledInstance(size, size, Image.SCALE_SMOOTH)));
+        setPainter(new ImagePainter(img));
+    }
+
+    /**
+     * Replaces the Painter that paints the contents of the Display
+     *
+     * @param painter
+     * The Painter to paint with from now on
+     */
+    public void setPainter(final Painter painter) {
+        this.painter = painter;
+        refresh();
+    }
+
+    /**
+     * Paints the contents again, for example after the game changed
+     * Safe to call from any thread, the painting happens on the Swing thread
+     */
+    public void refresh() {
+        this.canvas.repaint();
+    }
+
+    /**
+     * Private helper method to get the size of the painted square
+     *
+     * @return
+     * Returns the side of the largest square that fits in the window
+     */
+    private int getSide() {
+        return Math.min(this.canvas.getWidth(), this.canvas.getHeight());
     }
 
     /**
@@ -106,8 +215,14 @@ public class Display extends JFrame implements MouseListener {
      */
     @Override
     public void mouseClicked(MouseEvent e) {
-        int x = (int)(((double) e.getX()) / getWidth() * 3);
-        int y = (int)(((double) e.getY()) / getHeight() * 3);
+        final int side = getSide();
+        final int left = e.getX() - (this.canvas.getWidth() - side) / 2;
+        final int top = e.getY() - (this.canvas.getHeight() - side) / 2;
+        if(side == 0 || left < 0 || top < 0 || left >= side || top >= side)
+            return;
+
+        int x = left * 3 / side;
+        int y = top * 3 / side;
 
         for(PlayerInput listener : this.listeners)
             listener.onPlayerInput(new Point(x,y));